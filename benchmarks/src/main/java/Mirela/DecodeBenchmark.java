@@ -0,0 +1,49 @@
+package Mirela;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecodeBenchmark {
+
+    @Param({"png", "jpeg", "ico", "svg", "webp", "garbage"})
+    public String format;
+
+    private byte[] bytes;
+    private String url;
+    private String contentType;
+
+    @Setup
+    public void setup() {
+        switch (format) {
+            case "png": bytes = Fixtures.png(256); url = "https://x.test/logo.png"; contentType = "image/png"; break;
+            case "jpeg": bytes = Fixtures.jpeg(1200, 630); url = "https://x.test/og.jpg"; contentType = "image/jpeg"; break;
+            case "ico": bytes = Fixtures.ico(); url = "https://x.test/favicon.ico"; contentType = "image/x-icon"; break;
+            case "svg": bytes = Fixtures.svg(); url = "https://x.test/logo.svg"; contentType = "image/svg+xml"; break;
+            case "webp": bytes = Fixtures.webp(); url = "https://x.test/logo.webp"; contentType = "image/webp"; break;
+            default: bytes = Fixtures.shopPage().getBytes(); url = "https://x.test/logo.png"; contentType = "text/html"; break;
+        }
+    }
+
+    @Benchmark
+    public BufferedImage decode() {
+        return ImageDecoder.decode(bytes, url, contentType);
+    }
+}
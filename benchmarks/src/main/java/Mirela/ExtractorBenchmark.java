@@ -0,0 +1,69 @@
+package Mirela;
+
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtractorBenchmark {
+
+    // 0 = pagina mica din resources; altfel numarul de carduri de produs adaugate (5000 ~ 3.5 MB)
+    @Param({"0", "5000"})
+    public int products;
+
+    private final LogoExtractor extractor = new LogoExtractor();
+    private String html;
+    private Document doc;
+    private List<LogoExtractor.Candidate> candidates;
+
+    @Setup
+    public void setup() {
+        html = products == 0 ? Fixtures.shopPage() : Fixtures.largeShopPage(products);
+        doc = Fixtures.parse(html);
+        candidates = extractor.candidatesFrom(doc, Fixtures.SITE);
+    }
+
+    @Benchmark
+    public Document parse() {
+        return Fixtures.parse(html);
+    }
+
+    @Benchmark
+    public List<LogoExtractor.Candidate> select() {
+        return extractor.candidatesFrom(doc, Fixtures.SITE);
+    }
+
+    @Benchmark
+    public List<LogoExtractor.Candidate> parseAndSelect() {
+        return extractor.candidatesFrom(Fixtures.parse(html), Fixtures.SITE);
+    }
+
+    @Benchmark
+    public List<LogoExtractor.Candidate> prioritize() {
+        return LogoExtractor.prioritize(candidates);
+    }
+
+    @Benchmark
+    public int score() {
+        int total = 0;
+        for (LogoExtractor.Candidate c : candidates) total += LogoExtractor.score(c.absoluteUrl);
+        return total;
+    }
+}
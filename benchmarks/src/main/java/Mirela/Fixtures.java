@@ -0,0 +1,158 @@
+package Mirela;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import javax.imageio.ImageIO;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+
+// Date offline pentru benchmark-uri: nimic nu atinge reteaua, totul e generat determinist sau citit din resources.
+final class Fixtures {
+
+    static final String SITE = "https://www.example-shop.com/";
+
+    static BufferedImage logo(int size, int type) {
+        BufferedImage img = new BufferedImage(size, size, type);
+        Graphics2D g = img.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setColor(new Color(0x1E88E5));
+        g.fillRoundRect(size / 8, size / 8, size * 3 / 4, size * 3 / 4, size / 4, size / 4);
+        g.setColor(Color.WHITE);
+        g.setStroke(new BasicStroke(Math.max(1, size / 16f)));
+        g.drawOval(size / 4, size / 4, size / 2, size / 2);
+        g.setFont(new Font(Font.SANS_SERIF, Font.BOLD, Math.max(6, size / 3)));
+        g.drawString("E", size * 2 / 5, size * 3 / 5);
+        g.dispose();
+        return img;
+    }
+
+    static byte[] png(int size) {
+        return encode(logo(size, BufferedImage.TYPE_INT_ARGB), "png");
+    }
+
+    static byte[] jpeg(int width, int height) {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        Random r = new Random(7);
+        for (int i = 0; i < 200; i++) {
+            g.setColor(new Color(r.nextInt(0xFFFFFF)));
+            g.fillOval(r.nextInt(width), r.nextInt(height), r.nextInt(width / 3) + 1, r.nextInt(height / 3) + 1);
+        }
+        g.dispose();
+        return encode(img, "jpeg");
+    }
+
+    // ICO cu mai multe intrari PNG (16, 32, 48, 64, 128, 256), ca favicon-urile reale
+    static byte[] ico() {
+        int[] sizes = {16, 32, 48, 64, 128, 256};
+        List<byte[]> images = new ArrayList<>();
+        for (int s : sizes) images.add(png(s));
+        int offset = 6 + 16 * sizes.length;
+        int total = offset;
+        for (byte[] b : images) total += b.length;
+        ByteBuffer buf = ByteBuffer.allocate(total).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putShort((short) 0).putShort((short) 1).putShort((short) sizes.length);
+        for (int i = 0; i < sizes.length; i++) {
+            buf.put((byte) (sizes[i] & 0xFF)).put((byte) (sizes[i] & 0xFF)).put((byte) 0).put((byte) 0);
+            buf.putShort((short) 1).putShort((short) 32);
+            buf.putInt(images.get(i).length).putInt(offset);
+            offset += images.get(i).length;
+        }
+        for (byte[] b : images) buf.put(b);
+        return buf.array();
+    }
+
+    static byte[] svg() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 200 60\" width=\"200\" height=\"60\">");
+        sb.append("<defs><linearGradient id=\"g\" x1=\"0\" x2=\"1\"><stop offset=\"0\" stop-color=\"#1e88e5\"/>");
+        sb.append("<stop offset=\"1\" stop-color=\"#43a047\"/></linearGradient></defs>");
+        sb.append("<rect x=\"2\" y=\"2\" width=\"56\" height=\"56\" rx=\"12\" fill=\"url(#g)\"/>");
+        sb.append("<circle cx=\"30\" cy=\"30\" r=\"16\" fill=\"none\" stroke=\"#fff\" stroke-width=\"4\"/>");
+        sb.append("<path d=\"M70 15 h40 v8 h-30 v6 h24 v8 h-24 v6 h30 v8 h-40 z\" fill=\"#263238\"/>");
+        sb.append("<path d=\"M120 15 l15 30 l15 -30 h10 l-20 40 h-10 l-20 -40 z\" fill=\"#263238\"/>");
+        sb.append("</svg>");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // WebP lossless 1x1 (acelasi sir folosit de detectoarele de suport WebP din browsere)
+    static byte[] webp() {
+        return Base64.getDecoder().decode("UklGRhoAAABXRUJQVlA4TA0AAAAvAAAAEAcQERGIiP4HAA==");
+    }
+
+    static String shopPage() {
+        try (InputStream in = Fixtures.class.getResourceAsStream("/pages/shop.html")) {
+            if (in == null) throw new IllegalStateException("missing /pages/shop.html");
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // pagina de magazin mare (cativa MB): acelasi head/header, plus mii de carduri de produs in body
+    static String largeShopPage(int products) {
+        String page = shopPage();
+        StringBuilder cards = new StringBuilder(products * 700);
+        for (int i = 0; i < products; i++) {
+            cards.append("<div class=\"product-card\" data-sku=\"SKU-").append(i).append("\">")
+                    .append("<a href=\"/p/").append(i).append("\"><img src=\"https://cdn.example-shop.com/p/")
+                    .append(i).append("/main-800x800.jpg\" alt=\"Product ").append(i).append("\" loading=\"lazy\"></a>")
+                    .append("<h3 class=\"title\">Cotton T-Shirt model ").append(i).append("</h3>")
+                    .append("<p class=\"price\"><span class=\"old\">49.99</span> <span class=\"new\">29.99</span></p>")
+                    .append("<p class=\"desc\">Soft, breathable cotton jersey with a relaxed fit. ")
+                    .append("Machine washable. Available in several colours and sizes.</p>")
+                    .append("<button class=\"add-to-cart\" data-id=\"").append(i).append("\">Add to cart</button></div>\n");
+        }
+        return page.replace("<!-- products -->", cards.toString());
+    }
+
+    static Document parse(String html) {
+        return Jsoup.parse(html, SITE);
+    }
+
+    // hash-uri sintetice: ~30% sunt variatii (<= 10 biti) ale unui hash anterior, restul aleatoare
+    static long[] hashes(int n, long seed) {
+        Random r = new Random(seed);
+        long[] out = new long[n];
+        for (int i = 0; i < n; i++) {
+            if (i > 0 && r.nextInt(10) < 3) {
+                long h = out[r.nextInt(i)];
+                int flips = r.nextInt(11);
+                for (int k = 0; k < flips; k++) h ^= 1L << r.nextInt(64);
+                out[i] = h == -1 ? 0 : h;
+            } else {
+                long h = r.nextLong();
+                out[i] = h == -1 ? 0 : h;
+            }
+        }
+        return out;
+    }
+
+    private static byte[] encode(BufferedImage img, String format) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            if (!ImageIO.write(img, format, out)) throw new IllegalStateException("no writer for " + format);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Fixtures() {}
+}
@@ -0,0 +1,86 @@
+package Mirela;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+// modulul incubator e pornit ca scanSimd sa poata rula VectorHammingScan; restul merge pe calea aleasa de HammingScan
+@Fork(value = 1, jvmArgs = {"-Xmx4g", "--add-modules", "jdk.incubator.vector"})
+public class GroupingBenchmark {
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int n;
+
+    private static final int SCAN_QUERIES = 32;
+
+    private long[] hashes;
+    private HammingIndex index;
+    private List<LogoGrouper.LogoItem> items;
+    private long[] queries;
+    private int[] out;
+
+    @Setup
+    public void setup() {
+        hashes = Fixtures.hashes(n, 42);
+        index = new HammingIndex(hashes, 8);
+        items = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) items.add(new LogoGrouper.LogoItem("d" + i + ".test", "", hashes[i]));
+        queries = Fixtures.hashes(SCAN_QUERIES, 7);
+        out = new int[n];
+    }
+
+    @Benchmark
+    public HammingIndex buildIndex() {
+        return new HammingIndex(hashes, 8);
+    }
+
+    // join-ul pe toate tabelele, cum il face connectSequential, fara union-find
+    @Benchmark
+    public long scanIndex() {
+        long[] found = {0};
+        for (int c = 0; c < index.chunks(); c++) {
+            index.forEachPair(c, 0, index.values(c), (i, j) -> found[0]++);
+        }
+        return found[0];
+    }
+
+    // verificarea bruta pe tot setul, SIMD fata de scalar, la pragul din LogoGrouper; decide daca HammingScan
+    // porneste singur calea SIMD (pe JDK 17, fara popcount pe benzi, nu o face)
+    @Benchmark
+    public long scanSimd() {
+        long found = 0;
+        for (long q : queries) found += VectorHammingScan.matches(q, hashes, 0, n, 8, out);
+        return found;
+    }
+
+    @Benchmark
+    public long scanScalar() {
+        long found = 0;
+        for (long q : queries) found += HammingScan.scalar(q, hashes, 0, n, 8, out);
+        return found;
+    }
+
+    // pipeline complet (index + union-find + colectarea grupurilor), exact cum il ruleaza LogoGrouper
+    @Benchmark
+    public Map<Integer, List<LogoGrouper.LogoItem>> groupLogos() throws InterruptedException {
+        return LogoGrouper.groupLogos(items);
+    }
+}
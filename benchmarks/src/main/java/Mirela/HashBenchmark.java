@@ -0,0 +1,49 @@
+package Mirela;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashBenchmark {
+
+    @Param({"32", "256", "2048"})
+    public int size;
+
+    @Param({"INT_ARGB", "3BYTE_BGR", "BYTE_INDEXED"})
+    public String type;
+
+    private BufferedImage image;
+
+    @Setup
+    public void setup() {
+        int t;
+        switch (type) {
+            case "3BYTE_BGR": t = BufferedImage.TYPE_3BYTE_BGR; break;
+            case "BYTE_INDEXED": t = BufferedImage.TYPE_BYTE_INDEXED; break;
+            default: t = BufferedImage.TYPE_INT_ARGB; break;
+        }
+        image = Fixtures.logo(size, t);
+    }
+
+    @Benchmark
+    public long dHash() {
+        return ImageHasher.dHash(image);
+    }
+}
@@ -0,0 +1,160 @@
+package Mirela;
+
+import okhttp3.Dns;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Dns pentru clientul OkHttp comun: raspunsurile pozitive si negative sunt tinute minte cu TTL, iar domeniile
+// care urmeaza din coada de ingestie sunt rezolvate dinainte pe un pool mic, ca rezolvarea sa se suprapuna cu
+// lucrul pe domeniile curente. O rezolvare in curs e impartita de toti cei care cer acelasi host. Intrarile
+// expirate sunt scoase o data la SWEEP_MS de firul care adauga o intrare noua, altfel cache-ul ar tine
+// fiecare host vazut vreodata.
+public final class CachingDns implements Dns {
+
+    private static final long POSITIVE_TTL_MS = TimeUnit.SECONDS.toMillis(Long.getLong("logos.dns.ttlSec", 300L));
+    private static final long NEGATIVE_TTL_MS = TimeUnit.SECONDS.toMillis(Long.getLong("logos.dns.negativeTtlSec", 60L));
+    private static final int PREFETCH_THREADS = Integer.getInteger("logos.dns.threads", 16);
+    private static final long SWEEP_MS = Math.min(POSITIVE_TTL_MS, NEGATIVE_TTL_MS);
+
+    private static final CachingDns SHARED = new CachingDns();
+
+    private static final class Answer {
+        final List<InetAddress> addresses;
+        final String error;
+        final long expiresAt;
+        Answer(List<InetAddress> addresses, String error, long expiresAt) {
+            this.addresses = addresses;
+            this.error = error;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final ConcurrentHashMap<String, CompletableFuture<Answer>> cache = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor prefetcher;
+    private final AtomicLong nextSweep = new AtomicLong(System.currentTimeMillis() + SWEEP_MS);
+
+    private CachingDns() {
+        AtomicInteger n = new AtomicInteger();
+        prefetcher = new ThreadPoolExecutor(PREFETCH_THREADS, PREFETCH_THREADS, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(4096), r -> {
+                    Thread t = new Thread(r, "dns-prefetch-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        prefetcher.allowCoreThreadTimeOut(true);
+        Metrics.gauge("logos_dns_cached_hosts", cache::size);
+        Metrics.gauge("logos_dns_hit_ratio_pct", CachingDns::hitRatioPct);
+    }
+
+    public static CachingDns shared() {
+        return SHARED;
+    }
+
+    @Override
+    public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+        String host = hostname.toLowerCase(Locale.ROOT);
+        CompletableFuture<Answer> f = cache.get(host);
+        String result;
+        if (f != null && f.isDone() && expired(f)) {
+            cache.remove(host, f);
+            f = null;
+        }
+        if (f == null) {
+            CompletableFuture<Answer> mine = new CompletableFuture<>();
+            f = cache.putIfAbsent(host, mine);
+            if (f == null) {
+                sweepIfDue();
+                mine.complete(resolve(host));
+                f = mine;
+                result = "miss";
+            } else {
+                result = f.isDone() ? "hit" : "wait";
+            }
+        } else {
+            // "wait" = prefetch inca in curs: asteptam doar restul lui
+            result = f.isDone() ? "hit" : "wait";
+        }
+        Answer a = join(f);
+        if (a.error != null && "hit".equals(result)) result = "negative_hit";
+        Metrics.counter("logos_dns_total", "result", result).increment();
+        if (a.error != null) throw new UnknownHostException(a.error);
+        return a.addresses;
+    }
+
+    // domeniu din coada de ingestie: rezolvam host-ul si varianta www, daca nu sunt deja in cache
+    public void prefetch(String domain) {
+        String host = DomainSource.normalize(domain);
+        if (host.isEmpty()) return;
+        prefetchHost(host);
+        prefetchHost("www." + host);
+    }
+
+    private void prefetchHost(String host) {
+        // coada plina = renuntam la prefetch (lookup-ul il face oricum la nevoie)
+        if (prefetcher.getQueue().remainingCapacity() == 0) return;
+        CompletableFuture<Answer> existing = cache.get(host);
+        if (existing != null && !(existing.isDone() && expired(existing))) return;
+        CompletableFuture<Answer> mine = new CompletableFuture<>();
+        if (existing != null ? !cache.replace(host, existing, mine) : cache.putIfAbsent(host, mine) != null) return;
+        sweepIfDue();
+        prefetcher.execute(() -> mine.complete(resolve(host)));
+        Metrics.counter("logos_dns_prefetch_total").increment();
+    }
+
+    // doar un fir face trecerea; removeIf pe values() scoate intrarea numai daca e tot acelasi future
+    private void sweepIfDue() {
+        long now = System.currentTimeMillis();
+        long due = nextSweep.get();
+        if (now < due || !nextSweep.compareAndSet(due, now + SWEEP_MS)) return;
+        cache.values().removeIf(f -> f.isDone() && expired(f));
+    }
+
+    // raspunsuri servite din cache (inclusiv negative si prefetch-uri inca in curs) din totalul lookup-urilor
+    private static long hitRatioPct() {
+        long hits = Metrics.counter("logos_dns_total", "result", "hit").sum()
+                + Metrics.counter("logos_dns_total", "result", "negative_hit").sum()
+                + Metrics.counter("logos_dns_total", "result", "wait").sum();
+        long total = hits + Metrics.counter("logos_dns_total", "result", "miss").sum();
+        return total == 0 ? 0 : hits * 100 / total;
+    }
+
+    private static Answer resolve(String host) {
+        long t0 = System.nanoTime();
+        try {
+            List<InetAddress> addresses = Arrays.asList(InetAddress.getAllByName(host));
+            return new Answer(addresses, null, System.currentTimeMillis() + POSITIVE_TTL_MS);
+        } catch (UnknownHostException | RuntimeException e) {
+            return new Answer(null, e.getMessage() == null ? host : e.getMessage(),
+                    System.currentTimeMillis() + NEGATIVE_TTL_MS);
+        } finally {
+            Metrics.stage("dns").since(t0);
+        }
+    }
+
+    private static boolean expired(CompletableFuture<Answer> f) {
+        return f.getNow(null).expiresAt <= System.currentTimeMillis();
+    }
+
+    private static Answer join(CompletableFuture<Answer> f) throws UnknownHostException {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnknownHostException("Interrupted");
+        } catch (ExecutionException e) {
+            throw new UnknownHostException(String.valueOf(e.getCause()));
+        }
+    }
+}
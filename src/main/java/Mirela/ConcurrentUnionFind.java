@@ -0,0 +1,72 @@
+package Mirela;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Union-find fara lock-uri: fiecare nod are un cuvant de 64 de biti (rank << 32 | parent), modificat doar prin CAS.
+// Radacina cu cheia (rank, index) mai mica e legata sub cea cu cheia mai mare; CAS-ul pe cuvantul intreg esueaza
+// daca radacina legata si-a schimbat rank-ul intre timp, deci legaturile merg mereu spre chei strict mai mari si
+// nu se pot forma cicluri. find() foloseste path halving iterativ (fara recursie).
+public final class ConcurrentUnionFind {
+
+    private final AtomicLongArray words;
+
+    public ConcurrentUnionFind(int n) {
+        words = new AtomicLongArray(n);
+        for (int i = 0; i < n; i++) words.set(i, i);
+    }
+
+    public int size() {
+        return words.length();
+    }
+
+    public int find(int x) {
+        while (true) {
+            long w = words.get(x);
+            int p = parent(w);
+            if (p == x) return x;
+            long pw = words.get(p);
+            int gp = parent(pw);
+            if (gp != p) {
+                words.compareAndSet(x, w, pack(rank(w), gp));
+            }
+            x = gp;
+        }
+    }
+
+    public boolean union(int a, int b) {
+        while (true) {
+            a = find(a);
+            b = find(b);
+            if (a == b) return false;
+            long wa = words.get(a);
+            long wb = words.get(b);
+            if (parent(wa) != a || parent(wb) != b) continue;
+            int ra = rank(wa);
+            int rb = rank(wb);
+            if (ra < rb || (ra == rb && a < b)) {
+                int t = a; a = b; b = t;
+                long tw = wa; wa = wb; wb = tw;
+                int tr = ra; ra = rb; rb = tr;
+            }
+            // b are cheia mai mica: il legam sub a
+            if (words.compareAndSet(b, wb, pack(rb, a))) {
+                if (ra == rb) {
+                    words.compareAndSet(a, wa, pack(ra + 1, a));
+                }
+                return true;
+            }
+        }
+    }
+
+    private static int parent(long w) {
+        return (int) w;
+    }
+
+    private static int rank(long w) {
+        return (int) (w >>> 32);
+    }
+
+    private static long pack(int rank, int parent) {
+        return ((long) rank << 32) | (parent & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,240 @@
+package Mirela;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+
+// dHash 9x8 calculat direct din raster: alpha compus peste alb pe loc, luminanta in intregi (Rec. 709 * 256),
+// media fiecarei celule estimata pe o grila de cel mult SAMPLES x SAMPLES pixeli (cost constant, indiferent de
+// rezolutie), in buffere thread-local. Fara BufferedImage intermediare si fara getRGB per pixel pentru tipurile
+// uzuale (INT_RGB/ARGB/BGR, 3BYTE_BGR, 4BYTE_ABGR, BYTE_GRAY, USHORT_GRAY, BYTE_INDEXED). Griul e luat ca atare, ca
+// la desenarea intr-o imagine ARGB; getRGB l-ar trata ca gri liniar si l-ar deschide la culoare.
+final class DHashKernel {
+
+    private static final int W = 9;
+    private static final int H = 8;
+    private static final int SAMPLES = 4;
+
+    // luminanta * 256 pentru alb opac
+    private static final int WHITE = 255 * 256;
+
+    private static final class Buffers {
+        final long[] sum = new long[W * H];
+        final int[] xs = new int[W * SAMPLES];
+        final int[] nx = new int[W];
+        final int[] ys = new int[H * SAMPLES];
+        final int[] ny = new int[H];
+        final int[] row = new int[W * SAMPLES];
+        final int[] palette = new int[256];
+    }
+
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    static long hash(BufferedImage img) {
+        int w = img.getWidth();
+        int h = img.getHeight();
+        if (w <= 0 || h <= 0) return -1;
+
+        Buffers b = BUFFERS.get();
+        long[] sum = b.sum;
+        java.util.Arrays.fill(sum, 0L);
+        int[] row = b.row;
+        int nxs = positions(w, W, b.xs, b.nx);
+        positions(h, H, b.ys, b.ny);
+
+        Raster raster = img.getRaster();
+        int kind = kind(img, raster);
+        if (kind == INDEXED) {
+            ((IndexColorModel) img.getColorModel()).getRGBs(b.palette);
+        }
+
+        int yi = 0;
+        for (int cy = 0; cy < H; cy++) {
+            int base = cy * W;
+            for (int k = 0; k < b.ny[cy]; k++) {
+                luminanceRow(img, raster, kind, b.ys[yi++], b.xs, nxs, row, b);
+                int xi = 0;
+                for (int cx = 0; cx < W; cx++) {
+                    long s = 0;
+                    for (int end = xi + b.nx[cx]; xi < end; xi++) s += row[xi];
+                    sum[base + cx] += s;
+                }
+            }
+        }
+
+        long hash = 0L;
+        int bit = 0;
+        for (int cy = 0; cy < H; cy++) {
+            for (int cx = 0; cx < W - 1; cx++) {
+                // comparam mediile fara impartire: sumL / nL > sumR / nR (acelasi numar de randuri pe celula)
+                long nL = b.nx[cx];
+                long nR = b.nx[cx + 1];
+                if (sum[cy * W + cx] * nR > sum[cy * W + cx + 1] * nL) {
+                    hash |= (1L << bit);
+                }
+                bit++;
+            }
+        }
+        return hash;
+    }
+
+    // pozitiile esantionate pe o axa: celula c acopera [c*size/cells, (c+1)*size/cells) (cel putin un pixel,
+    // celulele se suprapun la imagini mai mici decat grila) si ia pana la SAMPLES pozitii centrate in ea
+    private static int positions(int size, int cells, int[] out, int[] perCell) {
+        int n = 0;
+        for (int c = 0; c < cells; c++) {
+            int p0 = c * size / cells;
+            int span = Math.max(1, (c + 1) * size / cells - p0);
+            int k = Math.min(SAMPLES, span);
+            for (int i = 0; i < k; i++) {
+                out[n++] = p0 + (2 * i + 1) * span / (2 * k);
+            }
+            perCell[c] = k;
+        }
+        return n;
+    }
+
+    private static final int GENERIC = 0;
+    private static final int INT_RGB = 1;
+    private static final int INT_ARGB = 2;
+    private static final int INT_ARGB_PRE = 3;
+    private static final int INT_BGR = 4;
+    private static final int BYTE_BGR = 5;
+    private static final int BYTE_ABGR = 6;
+    private static final int BYTE_ABGR_PRE = 7;
+    private static final int BYTE_GRAY = 8;
+    private static final int INDEXED = 9;
+    private static final int USHORT_GRAY = 10;
+
+    private static int kind(BufferedImage img, Raster raster) {
+        if (raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0) return GENERIC;
+        switch (img.getType()) {
+            case BufferedImage.TYPE_INT_RGB: return INT_RGB;
+            case BufferedImage.TYPE_INT_ARGB: return INT_ARGB;
+            case BufferedImage.TYPE_INT_ARGB_PRE: return INT_ARGB_PRE;
+            case BufferedImage.TYPE_INT_BGR: return INT_BGR;
+            case BufferedImage.TYPE_3BYTE_BGR: return BYTE_BGR;
+            case BufferedImage.TYPE_4BYTE_ABGR: return BYTE_ABGR;
+            case BufferedImage.TYPE_4BYTE_ABGR_PRE: return BYTE_ABGR_PRE;
+            case BufferedImage.TYPE_BYTE_GRAY: return BYTE_GRAY;
+            case BufferedImage.TYPE_USHORT_GRAY: return USHORT_GRAY;
+            case BufferedImage.TYPE_BYTE_INDEXED:
+                return raster.getSampleModel() instanceof ComponentSampleModel ? INDEXED : GENERIC;
+            default: return GENERIC;
+        }
+    }
+
+    private static void luminanceRow(BufferedImage img, Raster raster, int kind, int y, int[] xs, int n, int[] out, Buffers b) {
+        switch (kind) {
+            case INT_RGB:
+            case INT_ARGB:
+            case INT_ARGB_PRE:
+            case INT_BGR: {
+                int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+                int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+                int off = raster.getDataBuffer().getOffset() + y * stride;
+                // bucle separate pe tip, ca JIT-ul sa nu aiba ramificatii in bucla interioara
+                if (kind == INT_RGB) {
+                    for (int x = 0; x < n; x++) {
+                        int p = data[off + xs[x]];
+                        out[x] = lum((p >> 16) & 0xFF, (p >> 8) & 0xFF, p & 0xFF);
+                    }
+                } else if (kind == INT_BGR) {
+                    for (int x = 0; x < n; x++) {
+                        int p = data[off + xs[x]];
+                        out[x] = lum(p & 0xFF, (p >> 8) & 0xFF, (p >> 16) & 0xFF);
+                    }
+                } else if (kind == INT_ARGB) {
+                    for (int x = 0; x < n; x++) {
+                        int p = data[off + xs[x]];
+                        out[x] = over(lum((p >> 16) & 0xFF, (p >> 8) & 0xFF, p & 0xFF), p >>> 24);
+                    }
+                } else {
+                    for (int x = 0; x < n; x++) {
+                        int p = data[off + xs[x]];
+                        out[x] = overPre(lum((p >> 16) & 0xFF, (p >> 8) & 0xFF, p & 0xFF), p >>> 24);
+                    }
+                }
+                return;
+            }
+            case BYTE_BGR:
+            case BYTE_ABGR:
+            case BYTE_ABGR_PRE:
+            case BYTE_GRAY:
+            case INDEXED: {
+                byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+                ComponentSampleModel sm = (ComponentSampleModel) raster.getSampleModel();
+                int stride = sm.getScanlineStride();
+                int ps = sm.getPixelStride();
+                int off = raster.getDataBuffer().getOffset() + y * stride;
+                if (kind == BYTE_BGR) {
+                    for (int x = 0; x < n; x++) {
+                        int i = off + xs[x] * ps;
+                        out[x] = lum(data[i + 2] & 0xFF, data[i + 1] & 0xFF, data[i] & 0xFF);
+                    }
+                } else if (kind == BYTE_ABGR) {
+                    for (int x = 0; x < n; x++) {
+                        int i = off + xs[x] * ps;
+                        out[x] = over(lum(data[i + 3] & 0xFF, data[i + 2] & 0xFF, data[i + 1] & 0xFF), data[i] & 0xFF);
+                    }
+                } else if (kind == BYTE_ABGR_PRE) {
+                    for (int x = 0; x < n; x++) {
+                        int i = off + xs[x] * ps;
+                        out[x] = overPre(lum(data[i + 3] & 0xFF, data[i + 2] & 0xFF, data[i + 1] & 0xFF), data[i] & 0xFF);
+                    }
+                } else if (kind == BYTE_GRAY) {
+                    for (int x = 0; x < n; x++) {
+                        int i = off + xs[x] * ps;
+                        out[x] = (data[i] & 0xFF) << 8;
+                    }
+                } else {
+                    int[] pal = b.palette;
+                    for (int x = 0; x < n; x++) {
+                        int i = off + xs[x] * ps;
+                        int p = pal[data[i] & 0xFF];
+                        out[x] = over(lum((p >> 16) & 0xFF, (p >> 8) & 0xFF, p & 0xFF), p >>> 24);
+                    }
+                }
+                return;
+            }
+            case USHORT_GRAY: {
+                short[] data = ((DataBufferUShort) raster.getDataBuffer()).getData();
+                ComponentSampleModel sm = (ComponentSampleModel) raster.getSampleModel();
+                int ps = sm.getPixelStride();
+                int off = raster.getDataBuffer().getOffset() + y * sm.getScanlineStride();
+                // octetul de sus, ca Java2D cand copiaza griul pe 16 biti in ARGB
+                for (int x = 0; x < n; x++) out[x] = data[off + xs[x] * ps] & 0xFF00;
+                return;
+            }
+            default: {
+                // tipuri rare (16 biti, paleta sub 8 biti, custom): getRGB doar pe pixelii esantionati
+                for (int x = 0; x < n; x++) {
+                    int p = img.getRGB(xs[x], y);
+                    out[x] = over(lum((p >> 16) & 0xFF, (p >> 8) & 0xFF, p & 0xFF), p >>> 24);
+                }
+            }
+        }
+    }
+
+    // 0.2126 / 0.7152 / 0.0722 scalate la 256 (54 + 183 + 19 = 256)
+    private static int lum(int r, int g, int b) {
+        return 54 * r + 183 * g + 19 * b;
+    }
+
+    private static int over(int lum, int a) {
+        if (a == 255) return lum;
+        // impartire exacta la 255 prin inmultire (valorile sunt < 2^24)
+        return (int) (((long) (lum * a + WHITE * (255 - a)) * 0x80808081L) >>> 39);
+    }
+
+    private static int overPre(int lumPre, int a) {
+        return lumPre + 256 * (255 - a);
+    }
+
+    private DHashKernel() {}
+}
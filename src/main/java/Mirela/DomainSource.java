@@ -0,0 +1,166 @@
+package Mirela;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+
+// O singura scanare DuckDB a fisierului parquet, pe un fir separat: domeniile sunt normalizate, deduplicate,
+// filtrate pe shard si trimise in loturi intr-o coada marginita, deci extractia incepe inainte sa se termine
+// scanarea, iar scanarea se opreste singura cand consumatorii raman in urma.
+public final class DomainSource {
+
+    private static final List<String> END = Collections.emptyList();
+
+    private final String parquetPath;
+    private final int shardIndex;
+    private final int shardCount;
+    private final int batchSize;
+    private final BlockingQueue<List<String>> queue;
+    private final Thread thread;
+    private volatile Exception failure;
+    private volatile int total = -1;
+    private volatile long rowsScanned;
+    private volatile Consumer<List<String>> onBatch;
+    private List<String> current = END;
+    private int pos;
+    private boolean done;
+
+    public DomainSource(String parquetPath, int shardIndex, int shardCount, int batchSize) {
+        if (shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) {
+            throw new IllegalArgumentException("Invalid shard " + shardIndex + "/" + shardCount);
+        }
+        this.parquetPath = parquetPath;
+        this.shardIndex = shardIndex;
+        this.shardCount = shardCount;
+        this.batchSize = Math.max(1, batchSize);
+        this.queue = new ArrayBlockingQueue<>(64);
+        this.thread = new Thread(this::scan, "parquet-scan");
+        this.thread.setDaemon(true);
+    }
+
+    // "k/N" -> shard-ul k din N (implicit 0/1 = tot fisierul)
+    public static DomainSource fromProperties(String parquetPath) {
+        String shard = System.getProperty("logos.shard", "0/1");
+        String[] parts = shard.split("/");
+        if (parts.length != 2) throw new IllegalArgumentException("logos.shard must be k/N: " + shard);
+        return new DomainSource(parquetPath, Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()),
+                Integer.getInteger("logos.scanBatch", 256));
+    }
+
+    public DomainSource start() {
+        thread.start();
+        return this;
+    }
+
+    // apelat pe firul consumatorului cand un lot nou iese din coada, inainte de primul lui domeniu: domeniile
+    // lotului urmeaza sa fie procesate curand (ex. prefetch DNS)
+    public DomainSource onBatch(Consumer<List<String>> listener) {
+        this.onBatch = listener;
+        return this;
+    }
+
+    public String describeShard() {
+        return shardCount == 1 ? "all domains" : "shard " + shardIndex + "/" + shardCount;
+    }
+
+    // urmatorul domeniu, sau null la final; arunca exceptia scanarii daca aceasta a esuat
+    public String next() throws Exception {
+        while (!done && pos >= current.size()) {
+            current = queue.take();
+            pos = 0;
+            if (current == END) {
+                done = true;
+                if (failure != null) throw failure;
+            } else if (onBatch != null) {
+                onBatch.accept(current);
+            }
+        }
+        return done ? null : current.get(pos++);
+    }
+
+    // numarul de domenii unice din shard; valid doar dupa ce next() a intors null
+    public int total() {
+        return total;
+    }
+
+    public long rowsScanned() {
+        return rowsScanned;
+    }
+
+    private void scan() {
+        Set<String> seen = new HashSet<>();
+        List<String> batch = new ArrayList<>(batchSize);
+        try {
+            Class.forName("org.duckdb.DuckDBDriver");
+            // driver-ul 0.9.2 ignora setFetchSize si materializeaza tot rezultatul la executeQuery;
+            // jdbc_stream_results il face sa aduca bucatile pe masura ce rs.next() le cere
+            Properties props = new Properties();
+            props.setProperty("jdbc_stream_results", "true");
+            try (Connection con = DriverManager.getConnection("jdbc:duckdb:", props);
+                 Statement st = con.createStatement()) {
+                // fara DISTINCT: deduplicarea se face aici, ca primele randuri sa ajunga imediat la consumatori
+                try (ResultSet rs = st.executeQuery(
+                        "SELECT domain FROM read_parquet(" + sqlString(parquetPath.replace("\\", "/")) + ") " +
+                        "WHERE domain IS NOT NULL AND domain <> ''")) {
+                    long rows = 0;
+                    while (rs.next()) {
+                        rowsScanned = ++rows;
+                        String domain = normalize(rs.getString(1));
+                        if (domain.isEmpty() || !inShard(domain) || !seen.add(domain)) continue;
+                        batch.add(domain);
+                        if (batch.size() >= batchSize) {
+                            queue.put(batch);
+                            batch = new ArrayList<>(batchSize);
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            failure = e;
+        } finally {
+            total = seen.size();
+            try {
+                if (!batch.isEmpty()) queue.put(batch);
+                queue.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    boolean inShard(String domain) {
+        return shardCount == 1 || Math.floorMod(domain.hashCode(), shardCount) == shardIndex;
+    }
+
+    // "HTTPS://www.Example.com/path" -> "example.com"
+    public static String normalize(String raw) {
+        if (raw == null) return "";
+        String d = raw.trim().toLowerCase(Locale.ROOT);
+        int scheme = d.indexOf("://");
+        if (scheme >= 0) d = d.substring(scheme + 3);
+        int cut = d.length();
+        for (char c : new char[]{'/', '?', '#'}) {
+            int i = d.indexOf(c);
+            if (i >= 0 && i < cut) cut = i;
+        }
+        d = d.substring(0, cut);
+        while (d.endsWith(".")) d = d.substring(0, d.length() - 1);
+        if (d.startsWith("www.")) d = d.substring(4);
+        return d;
+    }
+
+    private static String sqlString(String s) {
+        return "'" + s.replace("'", "''") + "'";
+    }
+}
@@ -0,0 +1,258 @@
+package Mirela;
+
+import java.util.function.IntConsumer;
+
+// Multi-index hashing (Norouzi et al.): hash-ul de 64 biti e impartit in m bucati. Cu raze r_i pe bucati care
+// insumeaza r - m + 1 (principiul cutiei generalizat), doua hash-uri la distanta <= r au cel putin o bucata i
+// care difera in cel mult r_i biti: altfel distanta ar fi >= suma (r_i + 1) = r + 1. E suficient sa cautam in
+// fiecare tabela vecinii bucatii pe raza ei (r_i = -1: tabela nu e sondata) si sa verificam candidatii.
+// Rezultatul e exact: sunt intoarsi toti vecinii cu distanta <= threshold, fara perechi ratate.
+// Fiecare tabela tine si o copie a hash-urilor in ordinea id-urilor, ca o galeata sa fie un bloc contiguu
+// verificat de HammingScan (SIMD cand e disponibil), nu o citire indirecta per candidat.
+// Latimea bucatilor creste cu n (pana la MAX_CHUNK_BITS, deci m >= 3): cu bucati fixe de 16 biti o galeata are
+// n / 65536 intrari si fiecare interogare verifica ~1% din set, adica gruparea ramane patratica.
+public final class HammingIndex {
+
+    // tabela unei bucati e adresata direct: 2^b + 1 offset-uri, 64 MB la 24 de biti
+    private static final int MAX_CHUNK_BITS = 24;
+    private static final int MIN_CHUNKS = (64 + MAX_CHUNK_BITS - 1) / MAX_CHUNK_BITS;
+    private static final int JOIN_TILE = 1024;
+    // o sonda (galeata vecina citita din tabela) costa cam cat 15 distante verificate, masurat pe join la 1M-10M
+    private static final double PROBE_COST = 15;
+
+    private final long[] hashes;
+    private final int threshold;
+    private final int chunks;
+    private final int[] radius;
+    // pentru fiecare tabela: toate mastile de cel mult r_c biti din bucata, in ordinea crescatoare a ponderii
+    private final int[][] masks;
+    private final int[] shift;
+    private final int[] bits;
+    private final int[][] offsets;
+    private final int[][] ids;
+    private final long[][] sortedHashes;
+    private final ThreadLocal<int[]> hits;
+
+    public HammingIndex(long[] hashes, int threshold) {
+        this(hashes, threshold, defaultChunks(hashes.length, threshold));
+    }
+
+    public HammingIndex(long[] hashes, int threshold, int chunks) {
+        if (chunks < MIN_CHUNKS || chunks > 64) {
+            throw new IllegalArgumentException("chunks must be in [" + MIN_CHUNKS + ", 64]: " + chunks);
+        }
+        this.hashes = hashes;
+        this.threshold = threshold;
+        this.chunks = chunks;
+        this.radius = radii(threshold, chunks);
+        this.masks = new int[chunks][];
+        this.shift = new int[chunks];
+        this.bits = new int[chunks];
+        this.offsets = new int[chunks][];
+        this.ids = new int[chunks][];
+        this.sortedHashes = new long[chunks][];
+
+        int pos = 0;
+        for (int c = 0; c < chunks; c++) {
+            bits[c] = 64 / chunks + (c < 64 % chunks ? 1 : 0);
+            shift[c] = pos;
+            pos += bits[c];
+            masks[c] = masks(bits[c], radius[c]);
+        }
+
+        // counting sort pe fiecare bucata: offsets[c][v]..offsets[c][v+1] sunt id-urile cu valoarea v
+        int n = hashes.length;
+        int largest = 0;
+        for (int c = 0; c < chunks; c++) {
+            int size = 1 << bits[c];
+            int[] off = new int[size + 1];
+            for (int i = 0; i < n; i++) off[chunk(hashes[i], c) + 1]++;
+            for (int v = 0; v < size; v++) off[v + 1] += off[v];
+            int[] fill = off.clone();
+            int[] sorted = new int[n];
+            for (int i = 0; i < n; i++) sorted[fill[chunk(hashes[i], c)]++] = i;
+            long[] values = new long[n];
+            for (int k = 0; k < n; k++) values[k] = hashes[sorted[k]];
+            for (int v = 0; v < size; v++) largest = Math.max(largest, off[v + 1] - off[v]);
+            offsets[c] = off;
+            ids[c] = sorted;
+            sortedHashes[c] = values;
+        }
+        int bucketMax = largest;
+        this.hits = ThreadLocal.withInitial(() -> new int[bucketMax]);
+    }
+
+    public int size() {
+        return hashes.length;
+    }
+
+    public int threshold() {
+        return threshold;
+    }
+
+    public int chunks() {
+        return chunks;
+    }
+
+    @FunctionalInterface
+    public interface PairConsumer {
+        void accept(int i, int j);
+    }
+
+    // numarul de valori ale bucatii c; forEachPair poate fi impartit pe intervale din [0, values(c))
+    public int values(int c) {
+        return 1 << bits[c];
+    }
+
+    // Join pe tabela c pentru valorile [from, to): toate elementele cu aceeasi valoare sunt verificate impreuna fata
+    // de galetile de pe raza r_c. Valorile merg pe blocuri aliniate de JOIN_TILE si, in bloc, masca cu masca: v ^ mask
+    // ramane intr-un singur bloc, deci ambele citiri sunt secventiale (sondarea per element sare aleator prin tabele
+    // si e dominata de latenta memoriei). Fiecare pereche i < j la distanta <= threshold e raportata o singura data
+    // pe tot indexul, de prima tabela in care bucatile ei sunt pe raza. Intoarce numarul de distante calculate.
+    public long forEachPair(int c, int from, int to, PairConsumer out) {
+        int[] off = offsets[c];
+        int[] buf = hits.get();
+        int[] occupied = new int[JOIN_TILE];
+        long verified = 0;
+        for (int base = from; base < to; base = (base & -JOIN_TILE) + JOIN_TILE) {
+            int end = Math.min(to, (base & -JOIN_TILE) + JOIN_TILE);
+            int count = 0;
+            for (int v = base; v < end; v++) {
+                if (off[v] != off[v + 1]) occupied[count++] = v;
+            }
+            for (int mask : masks[c]) {
+                for (int k = 0; k < count; k++) {
+                    int v = occupied[k];
+                    int u = v ^ mask;
+                    // perechea de galeti (v, u) e verificata o data, din partea valorii mai mici
+                    if (u >= v) verified += verify(c, v, u, buf, out);
+                }
+            }
+        }
+        return verified;
+    }
+
+    private long verify(int c, int v, int u, int[] buf, PairConsumer out) {
+        int[] off = offsets[c];
+        int uFrom = off[u];
+        int uTo = off[u + 1];
+        if (uFrom == uTo) return 0;
+        long[] values = sortedHashes[c];
+        int[] bucket = ids[c];
+        long verified = 0;
+        for (int p = off[v]; p < off[v + 1]; p++) {
+            // in aceeasi galeata doar perechile de dupa p, ca fiecare sa apara o data
+            int from = u == v ? p + 1 : uFrom;
+            verified += uTo - from;
+            int found = HammingScan.matches(values[p], values, from, uTo, threshold, buf);
+            for (int k = 0; k < found; k++) {
+                if (foundEarlier(c, values[p] ^ values[buf[k]])) continue;
+                int i = bucket[p];
+                int j = bucket[buf[k]];
+                out.accept(Math.min(i, j), Math.max(i, j));
+            }
+        }
+        return verified;
+    }
+
+    // diferenta x e pe raza unei tabele anterioare, deci perechea a fost raportata acolo
+    private boolean foundEarlier(int c, long x) {
+        for (int e = 0; e < c; e++) {
+            if (radius[e] >= 0 && Long.bitCount((x >>> shift[e]) & ((1L << bits[e]) - 1)) <= radius[e]) return true;
+        }
+        return false;
+    }
+
+    // vecinii j > q ai lui q; seen e un buffer de marcaje de lungime size(), refolosit intre apeluri pe acelasi fir
+    // (intrarea seen[j] == q + 1 inseamna "deja raportat pentru q"). Intoarce numarul de distante calculate.
+    public long forEachNeighborAbove(int q, int[] seen, IntConsumer out) {
+        long h = hashes[q];
+        long verified = 0;
+        int[] buf = hits.get();
+        for (int c = 0; c < chunks; c++) {
+            int value = chunk(h, c);
+            for (int mask : masks[c]) verified += probe(c, value ^ mask, q, seen, buf, out);
+        }
+        return verified;
+    }
+
+    // toata galeata e verificata dintr-o trecere; filtrul j > q si deduplicarea raman doar pentru potriviri
+    private long probe(int c, int value, int q, int[] seen, int[] buf, IntConsumer out) {
+        int[] off = offsets[c];
+        int[] bucket = ids[c];
+        int mark = q + 1;
+        int from = off[value];
+        int to = off[value + 1];
+        int found = HammingScan.matches(hashes[q], sortedHashes[c], from, to, threshold, buf);
+        for (int m = 0; m < found; m++) {
+            int j = bucket[buf[m]];
+            if (j <= q || seen[j] == mark) continue;
+            seen[j] = mark;
+            out.accept(j);
+        }
+        return to - from;
+    }
+
+    private int chunk(long h, int c) {
+        return (int) ((h >>> shift[c]) & ((1L << bits[c]) - 1));
+    }
+
+    // alege m care minimizeaza costul estimat per element al join-ului, cu hash-uri ~uniforme: fiecare valoare
+    // ocupata sondeaza bila de raza r_c (PROBE_COST pe sonda, impartit la cele n / 2^b elemente ale ei) si
+    // verifica jumatate din galetile gasite; plus parcurgerea tabelelor de 2^b intrari impartita la n
+    static int defaultChunks(int n, int threshold) {
+        int best = MIN_CHUNKS;
+        double bestCost = Double.MAX_VALUE;
+        for (int m = MIN_CHUNKS; m <= Math.min(64, Math.max(MIN_CHUNKS, threshold + 1)); m++) {
+            int b = (64 + m - 1) / m;
+            int[] r = radii(threshold, m);
+            double perValue = (double) n / (1L << b);
+            double occupied = -Math.expm1(-perValue) / Math.max(perValue, 1e-9);
+            double cost = m / Math.max(perValue, 1e-9);
+            for (int c = 0; c < m; c++) {
+                if (r[c] >= 0) cost += ballSize(b, r[c]) * (PROBE_COST * occupied + perValue / 2);
+            }
+            if (cost < bestCost) {
+                bestCost = cost;
+                best = m;
+            }
+        }
+        return best;
+    }
+
+    private static int[] masks(int bits, int radius) {
+        int[] out = new int[(int) ballSize(bits, radius)];
+        int n = 0;
+        for (int w = 0; w <= radius; w++) n = masksOfWeight(bits, w, 0, 0, out, n);
+        return out;
+    }
+
+    private static int masksOfWeight(int bits, int left, int fromBit, int mask, int[] out, int n) {
+        if (left == 0) {
+            out[n++] = mask;
+            return n;
+        }
+        for (int b = fromBit; b < bits; b++) n = masksOfWeight(bits, left - 1, b + 1, mask | 1 << b, out, n);
+        return n;
+    }
+
+    // r - m + 1 impartit cat mai egal; restul merge la primele bucati, care sunt si cele mai late
+    static int[] radii(int threshold, int chunks) {
+        int total = threshold - chunks + 1;
+        int[] r = new int[chunks];
+        for (int c = 0; c < chunks; c++) {
+            r[c] = Math.floorDiv(total, chunks) + (c < Math.floorMod(total, chunks) ? 1 : 0);
+        }
+        return r;
+    }
+
+    private static double ballSize(int b, int r) {
+        double total = 0;
+        double binom = 1;
+        for (int k = 0; k <= r; k++) {
+            total += binom;
+            binom = binom * (b - k) / (k + 1);
+        }
+        return total;
+    }
+}
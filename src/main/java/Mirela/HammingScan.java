@@ -0,0 +1,43 @@
+package Mirela;
+
+// Verificarea bruta a unui bloc contiguu de hash-uri fata de o interogare: pozitiile k din [from, to) cu
+// bitCount(q ^ hashes[k]) <= threshold. Cu modulul jdk.incubator.vector (--add-modules) si popcount pe benzi
+// (JDK 19+) distantele se calculeaza SIMD; pe JDK 17 popcount-ul SWAR nu bate Long.bitCount (vezi
+// GroupingBenchmark.scanSimd/scanScalar), deci acolo calea SIMD porneste doar cu -Dlogos.simd=true.
+// -Dlogos.simd=false o opreste oriunde; rezultatul e acelasi pe ambele cai.
+public final class HammingScan {
+
+    private static final String SIMD = System.getProperty("logos.simd", "auto");
+
+    private static final boolean VECTOR = !SIMD.equals("false") && vectorAvailable()
+            && (SIMD.equals("true") || VectorHammingScan.nativePopcount());
+
+    public static boolean vectorized() {
+        return VECTOR;
+    }
+
+    // out trebuie sa aiba loc pentru to - from pozitii; intoarce cate au fost scrise, in ordine crescatoare
+    public static int matches(long q, long[] hashes, int from, int to, int threshold, int[] out) {
+        if (VECTOR) return VectorHammingScan.matches(q, hashes, from, to, threshold, out);
+        return scalar(q, hashes, from, to, threshold, out);
+    }
+
+    static int scalar(long q, long[] hashes, int from, int to, int threshold, int[] out) {
+        int n = 0;
+        for (int k = from; k < to; k++) {
+            if (Long.bitCount(q ^ hashes[k]) <= threshold) out[n++] = k;
+        }
+        return n;
+    }
+
+    // clasa cu Vector API se incarca doar aici; fara modul pica cu NoClassDefFoundError
+    private static boolean vectorAvailable() {
+        try {
+            return VectorHammingScan.matches(0L, new long[] {0L}, 0, 1, 0, new int[1]) == 1;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    private HammingScan() {}
+}
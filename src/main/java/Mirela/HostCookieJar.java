@@ -0,0 +1,53 @@
+package Mirela;
+
+import okhttp3.Cookie;
+import okhttp3.CookieJar;
+import okhttp3.HttpUrl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Cookie-uri in memorie pentru toata rularea, grupate dupa Cookie.domain(): un cookie Domain=x.com pus de
+// www.x.com ajunge si la cdn.x.com / static.x.com. La cerere se cauta host-ul si toti parintii lui; potrivirea
+// domeniu/cale/secure (inclusiv host-only) o face Cookie.matches, iar cookie-urile expirate sunt ignorate.
+final class HostCookieJar implements CookieJar {
+
+    private final ConcurrentHashMap<String, List<Cookie>> byDomain = new ConcurrentHashMap<>();
+
+    @Override
+    public void saveFromResponse(HttpUrl url, List<Cookie> cookies) {
+        for (Cookie c : cookies) {
+            byDomain.compute(c.domain(), (k, old) -> {
+                List<Cookie> list = old == null ? new ArrayList<>() : new ArrayList<>(old);
+                // acelasi (nume, domeniu, cale) inlocuieste valoarea veche
+                list.removeIf(o -> o.name().equals(c.name()) && o.path().equals(c.path()) && o.hostOnly() == c.hostOnly());
+                list.add(c);
+                return list;
+            });
+        }
+    }
+
+    @Override
+    public List<Cookie> loadForRequest(HttpUrl url) {
+        long now = System.currentTimeMillis();
+        List<Cookie> out = null;
+        // a.b.x.com, b.x.com, x.com, com
+        String domain = url.host();
+        while (!domain.isEmpty()) {
+            List<Cookie> list = byDomain.get(domain);
+            if (list != null) {
+                for (Cookie c : list) {
+                    if (c.expiresAt() > now && c.matches(url)) {
+                        if (out == null) out = new ArrayList<>();
+                        out.add(c);
+                    }
+                }
+            }
+            int dot = domain.indexOf('.');
+            domain = dot < 0 ? "" : domain.substring(dot + 1);
+        }
+        return out == null ? Collections.emptyList() : out;
+    }
+}
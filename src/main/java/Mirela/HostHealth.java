@@ -0,0 +1,173 @@
+package Mirela;
+
+import javax.net.ssl.SSLHandshakeException;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Circuit breaker per host: dupa FAILURES esecuri consecutive (conexiune refuzata, timeout, DNS, TLS, sau 401/403
+// pe pagina principala) host-ul e considerat mort pentru TTL, iar cererile catre el esueaza imediat, fara retea.
+// Host-urile moarte sunt scrise in <cache>/dead-hosts.tsv si raman moarte si la rularile urmatoare pana expira.
+// Pagina principala e raportata o data pe domeniu (de SiteResolver), iar imaginile doar cand sunt pe site-ul propriu.
+public final class HostHealth {
+
+    private static final int FAILURES = Integer.getInteger("logos.health.failures", 3);
+    private static final long TTL_MS = TimeUnit.HOURS.toMillis(Long.getLong("logos.health.ttlHours", 24L));
+
+    private static volatile HostHealth shared;
+
+    private static final class State {
+        int failures;
+        long openUntil;
+        String reason;
+    }
+
+    private final Path file;
+    private final ConcurrentHashMap<String, State> hosts = new ConcurrentHashMap<>();
+
+    HostHealth(Path file) {
+        this.file = file;
+        load();
+        Metrics.gauge("logos_circuit_open_hosts", this::openCount);
+    }
+
+    public static HostHealth shared() {
+        HostHealth h = shared;
+        if (h == null) {
+            synchronized (HostHealth.class) {
+                h = shared;
+                if (h == null) {
+                    h = new HostHealth(Path.of(System.getProperty("logos.cache.dir", ".logo-cache"), "dead-hosts.tsv"));
+                    shared = h;
+                }
+            }
+        }
+        return h;
+    }
+
+    // host sau URL
+    public boolean isOpen(String host) {
+        State s = hosts.get(HostLimiter.key(host));
+        if (s == null) return false;
+        synchronized (s) {
+            return s.openUntil > System.currentTimeMillis();
+        }
+    }
+
+    public String reason(String host) {
+        State s = hosts.get(HostLimiter.key(host));
+        if (s == null) return "";
+        synchronized (s) {
+            return s.reason == null ? "" : s.reason;
+        }
+    }
+
+    // rezultatul unei cereri: null = succes; page = cererea era pentru pagina principala (doar acolo 403 conteaza,
+    // un 403 pe o imagine de pe un CDN comun nu spune nimic despre restul site-urilor)
+    public void observe(String url, Throwable error, boolean page) {
+        if (error == null) {
+            success(url);
+            return;
+        }
+        Throwable cause = ImageFetcher.unwrap(error);
+        if (cause instanceof ImageFetcher.HttpStatusException) {
+            int code = ((ImageFetcher.HttpStatusException) cause).code;
+            if (page && (code == 401 || code == 403)) failure(url, "HTTP " + code);
+        } else if (isNetworkFailure(cause)) {
+            failure(url, cause.getClass().getSimpleName());
+        }
+    }
+
+    private static boolean isNetworkFailure(Throwable e) {
+        return e instanceof ConnectException || e instanceof SocketTimeoutException
+                || e instanceof UnknownHostException || e instanceof NoRouteToHostException
+                || e instanceof SSLHandshakeException;
+    }
+
+    private void success(String url) {
+        State s = hosts.get(HostLimiter.key(ImageFetcher.hostOf(url)));
+        if (s == null) return;
+        synchronized (s) {
+            if (s.openUntil == 0) s.failures = 0;
+        }
+    }
+
+    private void failure(String url, String reason) {
+        String key = HostLimiter.key(ImageFetcher.hostOf(url));
+        if (key.isEmpty()) return;
+        State s = hosts.computeIfAbsent(key, k -> new State());
+        long until;
+        synchronized (s) {
+            long now = System.currentTimeMillis();
+            if (s.openUntil > now) return;
+            if (s.openUntil != 0) {
+                // a expirat intre timp: o luam de la capat
+                s.openUntil = 0;
+                s.failures = 0;
+            }
+            if (++s.failures < FAILURES) return;
+            s.openUntil = now + TTL_MS;
+            s.reason = reason;
+            until = s.openUntil;
+        }
+        Metrics.counter("logos_circuit_opened_total", "reason", reason).increment();
+        persist(key, until, reason);
+    }
+
+    private long openCount() {
+        long now = System.currentTimeMillis();
+        long n = 0;
+        for (State s : hosts.values()) {
+            synchronized (s) {
+                if (s.openUntil > now) n++;
+            }
+        }
+        return n;
+    }
+
+    private void load() {
+        if (!Files.isRegularFile(file)) return;
+        long now = System.currentTimeMillis();
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String[] cols = line.split("\t");
+                if (cols.length < 2) continue;
+                long until;
+                try {
+                    until = Long.parseLong(cols[1].trim());
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                if (until <= now) continue;
+                State s = new State();
+                s.failures = FAILURES;
+                s.openUntil = until;
+                s.reason = cols.length > 2 ? cols[2] : "";
+                hosts.put(cols[0], s);
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: could not read " + file + ": " + e.getMessage());
+        }
+    }
+
+    private synchronized void persist(String host, long until, String reason) {
+        try {
+            Files.createDirectories(file.getParent());
+            try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                w.write(host + "\t" + until + "\t" + reason + "\n");
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: could not write " + file + ": " + e.getMessage());
+        }
+    }
+}
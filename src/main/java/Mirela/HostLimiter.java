@@ -0,0 +1,102 @@
+package Mirela;
+
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Politete per host pentru cererile HTTP: cel mult perHost cereri simultane si minIntervalMs intre doua porniri.
+// Asteptarea nu tine niciun fir: acquire intoarce un future care se completeaza cand slotul e liber si intervalul
+// a trecut (cu CompletableFuture.delayedExecutor), iar slotul trece direct la urmatorul din coada la release.
+public final class HostLimiter {
+
+    private static final class Slot {
+        int free;
+        long nextStart;
+        final ArrayDeque<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+
+        Slot(int permits) {
+            this.free = permits;
+        }
+    }
+
+    private final int perHost;
+    private final long minIntervalNanos;
+    private final ConcurrentHashMap<String, Slot> slots = new ConcurrentHashMap<>();
+
+    public HostLimiter(int perHost, long minIntervalMs) {
+        this.perHost = Math.max(1, perHost);
+        this.minIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, minIntervalMs));
+    }
+
+    // future-ul se completeaza cand cererea poate porni; cine il primeste completat trebuie sa apeleze release.
+    // Anulat inainte de a primi slotul, nu mai cere release (slotul trece la urmatorul).
+    public CompletableFuture<Void> acquire(String host) {
+        String key = key(host);
+        Slot s = slots.computeIfAbsent(key, k -> new Slot(perHost));
+        CompletableFuture<Void> f = new CompletableFuture<>();
+        long wait;
+        synchronized (s) {
+            if (s.free == 0) {
+                s.waiting.add(f);
+                return f;
+            }
+            s.free--;
+            wait = reserve(s);
+        }
+        grant(key, f, wait);
+        return f;
+    }
+
+    public void release(String host) {
+        String key = key(host);
+        Slot s = slots.get(key);
+        if (s == null) return;
+        CompletableFuture<Void> next;
+        long wait;
+        synchronized (s) {
+            next = s.waiting.poll();
+            while (next != null && next.isDone()) next = s.waiting.poll();
+            if (next == null) {
+                s.free++;
+                return;
+            }
+            wait = reserve(s);
+        }
+        grant(key, next, wait);
+    }
+
+    // sub lock-ul slotului: rezerva urmatorul moment de start si intoarce cat mai e pana la el
+    private long reserve(Slot s) {
+        long now = System.nanoTime();
+        long start = Math.max(now, s.nextStart);
+        s.nextStart = start + minIntervalNanos;
+        return start - now;
+    }
+
+    // in afara lock-ului: dependentii future-ului pornesc cererea HTTP; anulat intre timp = slotul merge mai departe
+    private void grant(String key, CompletableFuture<Void> f, long waitNanos) {
+        Runnable start = () -> {
+            if (!f.complete(null)) release(key);
+        };
+        if (waitNanos <= 0) {
+            start.run();
+        } else {
+            CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS).execute(start);
+        }
+    }
+
+    static String key(String host) {
+        if (host == null) return "";
+        String h = host.trim().toLowerCase(Locale.ROOT);
+        int scheme = h.indexOf("://");
+        if (scheme >= 0) h = h.substring(scheme + 3);
+        int slash = h.indexOf('/');
+        if (slash >= 0) h = h.substring(0, slash);
+        int colon = h.indexOf(':');
+        if (colon >= 0) h = h.substring(0, colon);
+        if (h.startsWith("www.")) h = h.substring(4);
+        return h;
+    }
+}
@@ -0,0 +1,142 @@
+package Mirela;
+
+import org.apache.commons.imaging.ImageReadException;
+import org.apache.commons.imaging.common.bytesource.ByteSourceArray;
+import org.apache.commons.imaging.formats.ico.IcoImageParser;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// ICO/CUR decodat dintr-o singura intrare: directorul e citit (plus antetul fiecarei imagini, pentru dimensiunile
+// reale) si se alege cea mai mare intrare, la egalitate cea cu mai multi biti de culoare. O intrare PNG merge direct
+// la ImageIO; una BMP e reimpachetata ca ICO cu o singura imagine, pentru ca commons-imaging decodeaza altfel
+// toate dimensiunile din fisier. Daca intrarea aleasa nu se decodeaza se incearca urmatoarele, in aceeasi
+// ordine, iar la final tot fisierul prin commons-imaging, ca inainte. Parserul ICO e apelat direct:
+// Imaging.getBufferedImage(byte[]) nu recunoaste ICO dupa octeti (guessFormat nu are semnatura pentru el).
+final class IcoReader {
+
+    private static final class Entry {
+        final int index;
+        final int offset;
+        final int length;
+        final boolean png;
+        final int width;
+        final int height;
+        final int bits;
+        Entry(int index, int offset, int length, boolean png, int width, int height, int bits) {
+            this.index = index;
+            this.offset = offset;
+            this.length = length;
+            this.png = png;
+            this.width = width;
+            this.height = height;
+            this.bits = bits;
+        }
+
+        boolean betterThan(Entry o) {
+            long area = (long) width * height;
+            long other = (long) o.width * o.height;
+            return area != other ? area > other : bits > o.bits;
+        }
+    }
+
+    static BufferedImage read(byte[] b) throws IOException, ImageReadException {
+        for (Entry e : ranked(b)) {
+            try {
+                BufferedImage img = decode(b, e);
+                if (img != null) {
+                    Metrics.counter("logos_ico_entries_total", "kind", e.png ? "png" : "bmp").increment();
+                    return img;
+                }
+            } catch (IOException | ImageReadException | RuntimeException ex) {
+                // intrare stricata: trecem la urmatoarea
+            }
+        }
+        Metrics.counter("logos_ico_entries_total", "kind", "file").increment();
+        return parse(b);
+    }
+
+    private static BufferedImage decode(byte[] b, Entry e) throws IOException, ImageReadException {
+        if (e.png) {
+            try (ByteArrayInputStream in = new ByteArrayInputStream(b, e.offset, e.length)) {
+                return ImageIO.read(in);
+            }
+        }
+        return parse(single(b, e));
+    }
+
+    // prima imagine din director, cum o decodeaza commons-imaging
+    private static BufferedImage parse(byte[] ico) throws IOException, ImageReadException {
+        return new IcoImageParser().getBufferedImage(new ByteSourceArray(ico), null);
+    }
+
+    // intrarile citibile, cea mai buna prima; la egalitate ramane ordinea din director
+    private static List<Entry> ranked(byte[] b) {
+        List<Entry> entries = new ArrayList<>();
+        if (b.length < 6) return entries;
+        int count = le16(b, 4);
+        for (int k = 0; k < count && 6 + 16 * (k + 1) <= b.length; k++) {
+            Entry e = entry(b, k);
+            if (e != null) entries.add(e);
+        }
+        entries.sort((x, y) -> x.betterThan(y) ? -1 : y.betterThan(x) ? 1 : 0);
+        return entries;
+    }
+
+    private static Entry entry(byte[] b, int k) {
+        int dir = 6 + 16 * k;
+        int length = le32(b, dir + 8);
+        int offset = le32(b, dir + 12);
+        // intrari trunchiate sau care arata in afara fisierului sunt sarite
+        if (offset < 6 || length < 40 || (long) offset + length > b.length) return null;
+        if ((b[offset] & 0xFF) == 0x89 && b[offset + 1] == 'P' && b[offset + 2] == 'N' && b[offset + 3] == 'G') {
+            // PNG: dimensiunile din IHDR (directorul nu poate spune mai mult de 256)
+            return new Entry(k, offset, length, true, be32(b, offset + 16), be32(b, offset + 20), 32);
+        }
+        if (le32(b, offset) < 40) return null;
+        // DIB: inaltimea include masca AND, deci e dubla
+        int width = le32(b, offset + 4);
+        int height = Math.abs(le32(b, offset + 8)) / 2;
+        return new Entry(k, offset, length, false, width, height, le16(b, offset + 14));
+    }
+
+    // ICO cu o singura intrare, cu planes/bitCount din antetul DIB (la CUR aceleasi campuri tin hotspot-ul)
+    private static byte[] single(byte[] b, Entry e) {
+        byte[] out = new byte[6 + 16 + e.length];
+        out[2] = 1;
+        out[4] = 1;
+        System.arraycopy(b, 6 + 16 * e.index, out, 6, 8);
+        out[10] = 1;
+        out[12] = (byte) e.bits;
+        out[13] = (byte) (e.bits >>> 8);
+        putLe32(out, 14, e.length);
+        putLe32(out, 18, 6 + 16);
+        System.arraycopy(b, e.offset, out, 6 + 16, e.length);
+        return out;
+    }
+
+    private static int le16(byte[] b, int i) {
+        return (b[i] & 0xFF) | (b[i + 1] & 0xFF) << 8;
+    }
+
+    private static int le32(byte[] b, int i) {
+        return (b[i] & 0xFF) | (b[i + 1] & 0xFF) << 8 | (b[i + 2] & 0xFF) << 16 | (b[i + 3] & 0xFF) << 24;
+    }
+
+    private static int be32(byte[] b, int i) {
+        return (b[i] & 0xFF) << 24 | (b[i + 1] & 0xFF) << 16 | (b[i + 2] & 0xFF) << 8 | (b[i + 3] & 0xFF);
+    }
+
+    private static void putLe32(byte[] b, int i, int v) {
+        b[i] = (byte) v;
+        b[i + 1] = (byte) (v >>> 8);
+        b[i + 2] = (byte) (v >>> 16);
+        b[i + 3] = (byte) (v >>> 24);
+    }
+
+    private IcoReader() {}
+}
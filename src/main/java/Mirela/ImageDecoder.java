@@ -1,69 +1,144 @@
 package Mirela;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 import org.apache.commons.imaging.Imaging;
 
+// Decodare printr-un registru: formatul e ghicit o singura data (magic numbers, apoi Content-Type, apoi extensia)
+// si payload-ul merge direct la codec-ul acelui format. Un payload stricat costa o singura incercare.
 public class ImageDecoder {
-    private static class BITranscoder extends org.apache.batik.transcoder.image.ImageTranscoder {
-        private BufferedImage image;
-        @Override 
-        public BufferedImage createImage(int w, int h) {
-            return new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+    // latura mare tinta pentru decodarea redusa: dHash foloseste 9x8, validarea MIN_SIDE
+    static final int TARGET_SIDE = Integer.getInteger("logos.decode.targetSide", 256);
+
+    // decodarea nu s-a facut din motive trecatoare (buget depasit, pool plin, intrerupere): rezultatul nu spune
+    // nimic despre continut, deci apelantul nu trebuie sa-l memoreze ca esec
+    public static final class TransientFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        TransientFailure(String path, Throwable cause) {
+            super("Decode " + path + " did not complete: " + cause, cause);
         }
-        @Override 
-        public void writeImage(BufferedImage img, org.apache.batik.transcoder.TranscoderOutput out) {
-            this.image = img;
+    }
+
+    interface Codec {
+        BufferedImage decode(byte[] bytes) throws Exception;
+    }
+
+    private interface Attempt {
+        BufferedImage run() throws Exception;
+    }
+
+    private static final class Entry {
+        final String path;
+        final Codec codec;
+        Entry(String path, Codec codec) {
+            this.path = path;
+            this.codec = codec;
         }
-        public BufferedImage getImage() { return image; }
+    }
+
+    private static final Map<ImageFormat, Entry> CODECS = new EnumMap<>(ImageFormat.class);
+
+    static {
+        // ImageIO (cu pluginurile TwelveMonkeys pentru WebP si BMP) acopera formatele raster obisnuite
+        Codec imageio = ImageDecoder::readSubsampled;
+        register(ImageFormat.PNG, "imageio", imageio);
+        register(ImageFormat.JPEG, "imageio", imageio);
+        register(ImageFormat.GIF, "imageio", imageio);
+        register(ImageFormat.BMP, "imageio", imageio);
+        register(ImageFormat.WEBP, "imageio", imageio);
+        register(ImageFormat.TIFF, "imageio", imageio);
+        register(ImageFormat.ICO, "ico", IcoReader::read);
+        register(ImageFormat.SVG, "svg", SvgRasterizer::rasterize);
+        // format nerecunoscut: o singura incercare, cu decodorul care stie cele mai multe formate
+        register(ImageFormat.UNKNOWN, "imaging", Imaging::getBufferedImage);
+    }
+
+    static void register(ImageFormat format, String path, Codec codec) {
+        CODECS.put(format, new Entry(path, codec));
     }
 
     public static BufferedImage decode(byte[] imgBytes, String urlLower, String contentTypeLower) {
-        try (ByteArrayInputStream bin = new ByteArrayInputStream(imgBytes)) {
-            BufferedImage img = ImageIO.read(bin);
-            if (img != null && img.getWidth() > 0 && img.getHeight() > 0) return img;
-        } catch (Throwable ignore) {}
-        
-        if (looksIco(urlLower, contentTypeLower)) {
+        return decode(imgBytes, detect(imgBytes, urlLower, contentTypeLower));
+    }
+
+    public static BufferedImage decode(byte[] imgBytes, ImageFormat format) {
+        Metrics.counter("logos_decode_format_total", "format", format.name().toLowerCase(Locale.ROOT)).increment();
+        Entry e = CODECS.get(format);
+        return attempt(e.path, () -> e.codec.decode(imgBytes));
+    }
+
+    // ca ImageIO.read, dar cu subsampling ales din dimensiunile din antet: un JPEG de 4000x3000 iese direct
+    // ~266x200, fara bufferul ARGB intreg. Memoria per decodare ramane aproape constanta, oricat de mare e sursa.
+    private static BufferedImage readSubsampled(byte[] bytes) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            if (in == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
             try {
-                BufferedImage img = Imaging.getBufferedImage(imgBytes);
-                if (img != null && img.getWidth() > 0 && img.getHeight() > 0) return img;
-            } catch (Throwable ignore) {}
+                reader.setInput(in, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = subsampling(reader.getWidth(0), reader.getHeight(0));
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                    Metrics.counter("logos_decode_subsampled_total").increment();
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
         }
-        
-        try {
-            BufferedImage img = Imaging.getBufferedImage(imgBytes);
-            if (img != null && img.getWidth() > 0 && img.getHeight() > 0) return img;
-        } catch (Throwable ignore) {}
-        
-        try {
-            BufferedImage img = rasterizeSvg(imgBytes, 512);
-            if (img != null && img.getWidth() > 0 && img.getHeight() > 0) return img;
-        } catch (Throwable ignore) {}
-        
-        try {
-            BufferedImage img = rasterizeSvg(imgBytes, 256);
-            if (img != null && img.getWidth() > 0 && img.getHeight() > 0) return img;
-        } catch (Throwable ignore) {}
-        
-        try {
-            BufferedImage img = rasterizeSvg(imgBytes, 1024);
-            if (img != null && img.getWidth() > 0 && img.getHeight() > 0) return img;
-        } catch (Throwable ignore) {}
-        
-        return null;
     }
-    
-    private static BufferedImage rasterizeSvg(byte[] svgBytes, int targetWidth) throws Exception {
-        BITranscoder t = new BITranscoder();
-        if (targetWidth > 0) {
-            t.addTranscodingHint(org.apache.batik.transcoder.SVGAbstractTranscoder.KEY_WIDTH, Float.valueOf(targetWidth));
+
+    // pasul nu lasa latura mica sub MIN_SIDE, ca o banda lata care trecea validarea sa o treaca in continuare
+    static int subsampling(int width, int height) {
+        int byLong = Math.max(width, height) / TARGET_SIDE;
+        int byShort = Math.min(width, height) / ImageProbe.MIN_SIDE;
+        return Math.max(1, Math.min(byLong, byShort));
+    }
+
+    // octetii au prioritate (Content-Type-ul si extensia mint des); restul doar cand semnatura lipseste
+    static ImageFormat detect(byte[] bytes, String urlLower, String contentTypeLower) {
+        ImageFormat sniffed = ImageFormat.sniff(bytes, Math.min(bytes.length, ImageFormat.SNIFF_BYTES));
+        if (sniffed != ImageFormat.UNKNOWN) return sniffed;
+        String ct = contentTypeLower == null ? "" : contentTypeLower;
+        String path = urlLower == null ? "" : urlLower;
+        int q = path.indexOf('?');
+        if (q >= 0) path = path.substring(0, q);
+        if (ct.contains("svg") || path.endsWith(".svg")) return ImageFormat.SVG;
+        if (looksIco(path, ct)) return ImageFormat.ICO;
+        return ImageFormat.UNKNOWN;
+    }
+
+    // fiecare decodare e cronometrata pe codec, ca sa vedem in metrici ce cale consuma timpul
+    private static BufferedImage attempt(String path, Attempt a) {
+        long t0 = System.nanoTime();
+        boolean ok = false;
+        try {
+            BufferedImage img = a.run();
+            if (img != null && img.getWidth() > 0 && img.getHeight() > 0) {
+                ok = true;
+                return img;
+            }
+        } catch (TimeoutException | RejectedExecutionException | InterruptedException e) {
+            throw new TransientFailure(path, e);
+        } catch (Throwable ignore) {
+        } finally {
+            Metrics.stage("decode_" + path).since(t0);
+            Metrics.counter("logos_decode_attempts_total", "path", path + (ok ? "_ok" : "_failed")).increment();
         }
-        org.apache.batik.transcoder.TranscoderInput in =
-                new org.apache.batik.transcoder.TranscoderInput(new ByteArrayInputStream(svgBytes));
-        t.transcode(in, null);
-        return t.getImage();
+        return null;
     }
     
     private static boolean looksIco(String urlLower, String contentTypeLower) {
@@ -1,11 +1,34 @@
 package Mirela;
 
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okhttp3.brotli.BrotliInterceptor;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 public final class ImageFetcher {
 
@@ -13,7 +36,41 @@ public final class ImageFetcher {
             "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 " +
                     "(KHTML, like Gecko) Chrome/122.0.0.0 Safari/537.36";
 
+    private static final String DEFAULT_REFERER = "https://www.google.com/";
+
+    // cookie-urile primite (inclusiv pe redirect-uri) sunt pastrate per domeniu pe toata rularea
+    private static final HostCookieJar COOKIES = new HostCookieJar();
+
+    // host-urile a caror pagina principala a fost deja incarcata pentru cookie-uri
+    private static final Set<String> WARMED = ConcurrentHashMap.newKeySet();
+
+    // aceeasi valoare ca in LogoGrouper: pool-ul si dispatcher-ul sunt dimensionate dupa numarul de workeri
+    private static final int CONCURRENCY = Integer.getInteger("logos.concurrency", 32);
+
+    // politetea per host: cereri simultane si pauza minima intre porniri, pe host-ul fiecarei cereri
+    static final int PER_HOST = Integer.getInteger("logos.perHost", 2);
+    static final long HOST_DELAY_MS = Long.getLong("logos.hostDelayMs", 50L);
+    private static final HostLimiter HOSTS = new HostLimiter(PER_HOST, HOST_DELAY_MS);
+
+    // ca limita implicita din Jsoup (2 MB); restul paginii nu contine <head>-ul
+    private static final int PAGE_MAX_BYTES = Integer.getInteger("logos.page.maxBytes", 2 * 1024 * 1024);
+
+    // in modul "head" citim pana dupa </head> si primul </header> / </nav>, dar nu mai mult de atat
+    private static final int PAGE_HEAD_BYTES = Integer.getInteger("logos.page.headBytes", 256 * 1024);
+
+    // plafonul pentru o imagine descarcata; logo-urile au rar peste cateva sute de KB, pozele og:image au MB
+    private static final int IMAGE_MAX_BYTES = Integer.getInteger("logos.image.maxBytes", 2 * 1024 * 1024);
+
+    // un singur client pentru pagini, manifeste si imagini: pagina si iconitele aceluiasi site refolosesc
+    // conexiunea (HTTP/2 cand serverul il accepta), sesiunea TLS si cookie-urile
     private static final OkHttpClient HTTP = new OkHttpClient.Builder()
+            .connectionPool(new ConnectionPool(CONCURRENCY * 2, 5, TimeUnit.MINUTES))
+            .dispatcher(dispatcher())
+            .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+            // cere "br,gzip" si decomprima singur raspunsul
+            .addInterceptor(BrotliInterceptor.INSTANCE)
+            .cookieJar(COOKIES)
+            .dns(CachingDns.shared())
             .followRedirects(true)
             .followSslRedirects(true)
             .connectTimeout(15, TimeUnit.SECONDS)
@@ -21,55 +78,482 @@ public final class ImageFetcher {
             .writeTimeout(30, TimeUnit.SECONDS)
             .build();
 
+    private static final LogoCache CACHE = LogoCache.shared();
+
+    private static final AtomicInteger IN_FLIGHT = new AtomicInteger();
+
+    static {
+        Metrics.gauge("logos_http_in_flight", IN_FLIGHT::get);
+    }
+
     public static class Payload {
         public final byte[] bytes;
         public final String contentType;
+        public final String digest;
         public Payload(byte[] bytes, String contentType) {
+            this(bytes, contentType, null);
+        }
+        public Payload(byte[] bytes, String contentType, String digest) {
             this.bytes = bytes;
             this.contentType = contentType;
+            this.digest = digest;
+        }
+    }
+
+    // raspuns refuzat inainte de a fi descarcat complet (prea mare, nu e imagine); nu are rost reincercat
+    public static final class RejectedException extends IOException {
+        private static final long serialVersionUID = 1L;
+        public final String reason;
+        RejectedException(String reason, String message) {
+            super(message);
+            this.reason = reason;
+        }
+    }
+
+    // raspuns HTTP fara succes; codul e folosit de HostHealth (401/403 pe pagina principala)
+    public static final class HttpStatusException extends IOException {
+        private static final long serialVersionUID = 1L;
+        public final int code;
+        HttpStatusException(int code, String url) {
+            super("HTTP " + code + " for " + url);
+            this.code = code;
+        }
+    }
+
+    public static class Page {
+        public final byte[] bytes;
+        public final String charset;
+        public final String finalUrl;
+        // false daca citirea s-a oprit devreme (modul head), restul documentului nu a fost descarcat
+        public final boolean complete;
+        public Page(byte[] bytes, String charset, String finalUrl) {
+            this(bytes, charset, finalUrl, true);
+        }
+        public Page(byte[] bytes, String charset, String finalUrl, boolean complete) {
+            this.bytes = bytes;
+            this.charset = charset;
+            this.finalUrl = finalUrl;
+            this.complete = complete;
+        }
+    }
+
+    private static Dispatcher dispatcher() {
+        Dispatcher d = new Dispatcher();
+        d.setMaxRequests(CONCURRENCY * 4);
+        // plafon mic si la nivelul dispatcher-ului (implicitul OkHttp), pe langa HOSTS: un host sau un CDN comun
+        // nu primeste niciodata cate o cerere de la fiecare worker
+        d.setMaxRequestsPerHost(Math.max(PER_HOST, 5));
+        return d;
+    }
+
+    // HTML pentru Jsoup, prin acelasi client; charset-ul e null cand serverul nu-l trimite (Jsoup il cauta in <meta>)
+    public static Page getPage(String url) throws IOException {
+        return await(getPageAsync(url));
+    }
+
+    public static CompletableFuture<Page> getPageAsync(String url) {
+        return getPageAsync(url, false);
+    }
+
+    // headOnly: doar inceputul paginii (vezi readHead); Page.complete spune daca s-a oprit devreme
+    public static CompletableFuture<Page> getPageAsync(String url, boolean headOnly) {
+        CompletableFuture<Page> dead = rejectIfDead(url);
+        if (dead != null) return dead;
+        Request request = new Request.Builder()
+                .url(url)
+                .get()
+                .header("User-Agent", UA)
+                .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8")
+                .header("Accept-Language", "en-US,en;q=0.9")
+                .header("Upgrade-Insecure-Requests", "1")
+                .header("Sec-Fetch-Mode", "navigate")
+                .header("Sec-Fetch-Dest", "document")
+                .header("Sec-Fetch-Site", "none")
+                .header("Sec-Fetch-User", "?1")
+                .header("Referer", DEFAULT_REFERER)
+                .build();
+        Call call = HTTP.newCall(request);
+        CompletableFuture<Page> result = new CompletableFuture<>();
+        IN_FLIGHT.incrementAndGet();
+        // rezultatul pentru HostHealth il raporteaza SiteResolver, o data pe domeniu, nu pentru fiecare varianta
+        result.whenComplete((p, e) -> {
+            IN_FLIGHT.decrementAndGet();
+            if (result.isCancelled()) call.cancel();
+        });
+        whenPermitted(url, result, () -> call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call c, IOException e) {
+                result.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call c, Response res) {
+                try (Response r = res) {
+                    result.complete(readPage(r, url, headOnly));
+                } catch (IOException | RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        }));
+        return result;
+    }
+
+    private static Page readPage(Response res, String url, boolean headOnly) throws IOException {
+        Metrics.counter("logos_http_responses_total", "code", String.valueOf(res.code())).increment();
+        if (!res.isSuccessful() || res.body() == null) {
+            throw new HttpStatusException(res.code(), url);
         }
+        MediaType type = res.body().contentType();
+        if (type != null && !type.subtype().toLowerCase(Locale.ROOT).contains("html")
+                && !type.subtype().toLowerCase(Locale.ROOT).contains("xml")) {
+            throw new IOException("Unhandled content type " + type.type() + "/" + type.subtype() + " for " + url);
+        }
+        byte[] bytes;
+        boolean complete = true;
+        try (InputStream in = res.body().byteStream()) {
+            if (headOnly) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(32 * 1024);
+                complete = readHead(in, out);
+                bytes = out.toByteArray();
+            } else {
+                bytes = in.readNBytes(PAGE_MAX_BYTES);
+            }
+        }
+        Metrics.counter("logos_http_bytes_total").add(bytes.length);
+        Charset cs = type == null ? null : type.charset();
+        return new Page(bytes, cs == null ? null : cs.name(), res.request().url().toString(), complete);
+    }
+
+    // citeste pana la: sfarsitul documentului (true), sau </head> urmat de primul </header> / </nav>, sau
+    // PAGE_HEAD_BYTES (false). Marcajele sunt cautate in octeti (ASCII), fara sa decodam charset-ul.
+    private static boolean readHead(InputStream in, ByteArrayOutputStream out) throws IOException {
+        byte[] buf = new byte[16 * 1024];
+        boolean headClosed = false;
+        String carry = "";
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            out.write(buf, 0, n);
+            // pastram coada citirii anterioare, ca un marcaj taiat intre doua citiri sa fie gasit
+            String window = carry + new String(buf, 0, n, StandardCharsets.ISO_8859_1).toLowerCase(Locale.ROOT);
+            carry = window.substring(Math.max(0, window.length() - 8));
+            int pos = 0;
+            if (!headClosed) {
+                int h = window.indexOf("</head>");
+                if (h >= 0) {
+                    headClosed = true;
+                    pos = h;
+                }
+            }
+            if (headClosed && (window.indexOf("</header>", pos) >= 0 || window.indexOf("</nav>", pos) >= 0)) {
+                return false;
+            }
+            if (out.size() >= PAGE_HEAD_BYTES) return false;
+        }
+        return true;
     }
 
     public static Payload get(String url) throws IOException {
-        return get(url, "https://www.google.com/");
+        return get(url, DEFAULT_REFERER);
     }
 
     public static Payload get(String url, String referer) throws IOException {
-        String ref = (referer != null && !referer.isEmpty()) ? referer : "https://www.google.com/";
+        return await(getAsync(url, referer));
+    }
 
-        // warm-up homepage pentru cookies (dacă referer e un site)
-        try {
-            java.net.URL r = new java.net.URL(ref);
-            okhttp3.HttpUrl warmUrl = new okhttp3.HttpUrl.Builder()
-                    .scheme(r.getProtocol().startsWith("http") ? r.getProtocol() : "https")
-                    .host(r.getHost())
-                    .addPathSegment("") // "/"
-                    .build();
-            Request warm = new Request.Builder()
-                    .url(warmUrl)
-                    .get()
-                    .header("User-Agent", UA)
-                    .header("Accept", "text/html,*/*;q=0.8")
-                    .build();
-            try (Response wr = HTTP.newCall(warm).execute()) { /* ignore body */ }
-        } catch (Throwable ignore) {}
-
-        Request req = new Request.Builder()
+    // ca get, dar raspunsul trebuie sa fie o imagine sub IMAGE_MAX_BYTES (vezi readImage)
+    public static Payload getImage(String url, String referer) throws IOException {
+        return await(getImageAsync(url, referer));
+    }
+
+    public static CompletableFuture<Payload> getAsync(String url, String referer) {
+        return fetchAsync(url, referer, false);
+    }
+
+    public static CompletableFuture<Payload> getImageAsync(String url, String referer) {
+        return fetchAsync(url, referer, true);
+    }
+
+    // varianta asincrona: apelul e pus in coada dispatcher-ului OkHttp, firul apelantului nu asteapta.
+    // Anularea future-ului anuleaza si apelul HTTP in curs.
+    private static CompletableFuture<Payload> fetchAsync(String url, String referer, boolean image) {
+        String ref = (referer != null && !referer.isEmpty()) ? referer : DEFAULT_REFERER;
+
+        LogoCache.Entry cached = CACHE.lookup(url);
+        if (cached != null && CACHE.isFresh(cached)) {
+            byte[] b = CACHE.bytes(cached);
+            if (b != null) {
+                Metrics.counter("logos_cache_total", "result", "hit").increment();
+                return CompletableFuture.completedFuture(new Payload(b, cached.contentType, cached.digest));
+            }
+            cached = null;
+        }
+        Metrics.counter("logos_cache_total", "result", cached == null ? "miss" : "stale").increment();
+        CompletableFuture<Payload> dead = rejectIfDead(url);
+        if (dead != null) return dead;
+
+        Request.Builder rb = new Request.Builder()
                 .url(url)
                 .get()
                 .header("User-Agent", UA)
                 .header("Accept", "image/avif,image/webp,image/apng,image/*,*/*;q=0.8")
                 .header("Accept-Language", "en-US,en;q=0.9")
-                .header("Referer", ref)
-                .build();
+                .header("Referer", ref);
+        // revalidare conditionala pentru intrarile expirate din cache
+        if (cached != null && cached.etag != null) rb.header("If-None-Match", cached.etag);
+        if (cached != null && cached.lastModified != null) rb.header("If-Modified-Since", cached.lastModified);
+
+        CompletableFuture<Payload> result = new CompletableFuture<>();
+        AtomicReference<Call> current = new AtomicReference<>();
+        long t0 = System.nanoTime();
+        IN_FLIGHT.incrementAndGet();
+        result.whenComplete((p, e) -> {
+            IN_FLIGHT.decrementAndGet();
+            long dt = System.nanoTime() - t0;
+            Metrics.stage("http_get").record(dt);
+            Metrics.hostTime(hostOf(url), dt);
+            if (result.isCancelled()) {
+                Call c = current.get();
+                if (c != null) c.cancel();
+            } else if (e instanceof RejectedException) {
+                Metrics.counter("logos_http_rejected_total", "reason", ((RejectedException) e).reason).increment();
+            } else {
+                if (e != null) {
+                    Metrics.counter("logos_http_errors_total", "type", e.getClass().getSimpleName()).increment();
+                }
+                // un CDN comun multor domenii nu e judecat dupa un timeout pe imaginea unui singur site
+                if (sameSite(url, ref)) HostHealth.shared().observe(url, e, false);
+            }
+        });
+        Request request = rb.build();
+        LogoCache.Entry stale = cached;
+        whenPermitted(url, result, () -> enqueue(request, url, ref, stale, image, result, current, true));
+        return result;
+    }
+
+    // cererea porneste cand HostLimiter ii da un slot pe host-ul ei; slotul e eliberat cand result se termina
+    // (inclusiv reincercarea dupa warm-up, care ramane in acelasi slot)
+    private static void whenPermitted(String url, CompletableFuture<?> result, Runnable start) {
+        String host = hostOf(url);
+        CompletableFuture<Void> permit = HOSTS.acquire(host);
+        result.whenComplete((v, e) -> {
+            // anulat inainte de slot = nu are ce elibera
+            if (!permit.cancel(false)) HOSTS.release(host);
+        });
+        permit.thenRun(start);
+    }
+
+    private static void enqueue(Request request, String url, String ref, LogoCache.Entry cached, boolean image,
+                                CompletableFuture<Payload> result, AtomicReference<Call> current, boolean mayWarm) {
+        Call call = HTTP.newCall(request);
+        current.set(call);
+        // anulat intre doua apeluri (ex. dupa warm-up): nu mai pornim nimic
+        if (result.isDone()) return;
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call c, IOException e) {
+                result.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call c, Response res) {
+                // 401/403: poate serverul vrea cookie-uri de sesiune; incarcam homepage-ul o singura data pe host
+                // si reincercam cu ce a pus in jar
+                if (mayWarm && (res.code() == 401 || res.code() == 403)) {
+                    Request warm = warmUpRequest(ref);
+                    if (warm != null) {
+                        Metrics.counter("logos_http_responses_total", "code", String.valueOf(res.code())).increment();
+                        res.close();
+                        discard(warm).whenComplete((v, e) -> enqueue(request, url, ref, cached, image, result, current, false));
+                        return;
+                    }
+                }
+                try (Response r = res) {
+                    result.complete(read(r, url, cached, image));
+                } catch (IOException | RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        });
+    }
+
+    // reincercari cu backoff programat (CompletableFuture.delayedExecutor), fara sleep pe firul apelantului
+    public static CompletableFuture<Payload> getWithRetryAsync(String url, String referer, int attempts) {
+        CompletableFuture<Payload> result = new CompletableFuture<>();
+        attempt(url, referer, false, 0, attempts, result);
+        return result;
+    }
+
+    public static CompletableFuture<Payload> getImageWithRetryAsync(String url, String referer, int attempts) {
+        CompletableFuture<Payload> result = new CompletableFuture<>();
+        attempt(url, referer, true, 0, attempts, result);
+        return result;
+    }
+
+    private static void attempt(String url, String referer, boolean image, int i, int attempts,
+                                CompletableFuture<Payload> result) {
+        if (result.isDone()) return;
+        CompletableFuture<Payload> f = fetchAsync(url, referer, image);
+        result.whenComplete((p, e) -> {
+            if (result.isCancelled()) f.cancel(true);
+        });
+        f.whenComplete((p, e) -> {
+            if (e == null) {
+                result.complete(p);
+                return;
+            }
+            Throwable cause = unwrap(e);
+            if (cause instanceof RejectedException) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            if (i + 1 >= attempts || f.isCancelled()) {
+                result.completeExceptionally(new IOException("Failed after " + attempts + " retries: " +
+                        cause.getMessage(), cause));
+                return;
+            }
+            Metrics.counter("logos_fetch_retries_total").increment();
+            CompletableFuture.delayedExecutor(100L * (i + 1), TimeUnit.MILLISECONDS)
+                    .execute(() -> attempt(url, referer, image, i + 1, attempts, result));
+        });
+    }
+
+    // imaginea e pe site-ul care o cere (acelasi host sau un subdomeniu al lui), nu pe un host strain
+    static boolean sameSite(String url, String referer) {
+        String host = HostLimiter.key(hostOf(url));
+        String site = HostLimiter.key(hostOf(referer));
+        if (host.isEmpty() || site.isEmpty()) return false;
+        return host.equals(site) || host.endsWith("." + site) || site.endsWith("." + host);
+    }
+
+    // host cu circuitul deschis: esec imediat, fara retea (si fara reincercari, e RejectedException)
+    private static <T> CompletableFuture<T> rejectIfDead(String url) {
+        HostHealth health = HostHealth.shared();
+        if (!health.isOpen(hostOf(url))) return null;
+        Metrics.counter("logos_http_rejected_total", "reason", "circuit_open").increment();
+        return CompletableFuture.failedFuture(new RejectedException("circuit_open",
+                "Host marked dead (" + health.reason(hostOf(url)) + ") for " + url));
+    }
+
+    // asteapta rezultatul unui apel asincron; la intrerupere anuleaza apelul
+    static <T> T await(CompletableFuture<T> f) throws IOException {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            f.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted");
+        } catch (ExecutionException | CancellationException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    static Throwable unwrap(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
 
-        try (Response res = HTTP.newCall(req).execute()) {
-            if (!res.isSuccessful() || res.body() == null) {
-                throw new IOException("HTTP " + res.code() + " for " + url);
+    private static Payload read(Response res, String url, LogoCache.Entry cached, boolean image) throws IOException {
+        Metrics.counter("logos_http_responses_total", "code", String.valueOf(res.code())).increment();
+        if (res.code() == 304 && cached != null) {
+            byte[] b = CACHE.bytes(cached);
+            if (b != null) {
+                Metrics.counter("logos_cache_total", "result", "revalidated").increment();
+                LogoCache.Entry e = CACHE.revalidated(cached);
+                return new Payload(b, e.contentType, e.digest);
             }
-            String ct = res.header("Content-Type", "");
-            return new Payload(res.body().bytes(), ct == null ? "" : ct);
         }
+        if (!res.isSuccessful() || res.body() == null) {
+            throw new HttpStatusException(res.code(), url);
+        }
+        String ct = res.header("Content-Type", "");
+        ct = ct == null ? "" : ct;
+        byte[] bytes = image ? readImage(res.body(), ct, url) : res.body().bytes();
+        Metrics.counter("logos_http_bytes_total").add(bytes.length);
+        String digest = CACHE.put(url, bytes, ct, res.header("ETag"), res.header("Last-Modified"));
+        return new Payload(bytes, ct, digest);
+    }
+
+    // corpul unei imagini, citit in flux cu plafon: refuzat din Content-Length / Content-Type daca se poate,
+    // apoi dupa primii octeti (magic numbers si dimensiunile din antet, sub ImageProbe.MIN_SIDE), apoi la
+    // depasirea plafonului in timpul citirii.
+    // Inchiderea raspunsului necitit abandoneaza conexiunea, deci restul corpului nu mai e descarcat.
+    private static byte[] readImage(ResponseBody body, String contentType, String url) throws IOException {
+        long declared = body.contentLength();
+        if (declared > IMAGE_MAX_BYTES) {
+            throw new RejectedException("too_large", "Image too large (" + declared + " bytes) for " + url);
+        }
+        String ct = contentType.toLowerCase(Locale.ROOT);
+        if (ct.startsWith("text/html") || ct.startsWith("application/json") || ct.startsWith("text/css")
+                || ct.contains("javascript") || ct.startsWith("video/") || ct.startsWith("audio/")) {
+            throw new RejectedException("content_type", "Not an image (" + contentType + ") for " + url);
+        }
+        try (InputStream in = body.byteStream()) {
+            byte[] head = in.readNBytes(ImageProbe.PROBE_BYTES);
+            ImageFormat format = ImageFormat.sniff(head, head.length);
+            if (format == ImageFormat.UNKNOWN) {
+                throw new RejectedException("not_image", "Unrecognized image data for " + url);
+            }
+            ImageProbe.Size size = ImageProbe.probe(head, head.length, format);
+            Metrics.counter("logos_probe_total", "result", size == null ? "unknown" : size.tooSmall() ? "small" : "ok").increment();
+            if (size != null && size.tooSmall()) {
+                throw new RejectedException("too_small", "Image too small (" + size.width + "x" + size.height + ") for " + url);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(
+                    declared > 0 ? (int) declared : Math.max(head.length, 16 * 1024));
+            out.write(head);
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                if (out.size() + n > IMAGE_MAX_BYTES) {
+                    throw new RejectedException("too_large", "Image larger than " + IMAGE_MAX_BYTES + " bytes for " + url);
+                }
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    // GET pe homepage-ul referer-ului ca sa primim cookie-urile de sesiune in jar; cel mult o data pe host si rulare.
+    // null daca host-ul a fost deja incalzit (o reincercare n-ar schimba nimic).
+    private static Request warmUpRequest(String referer) {
+        if (DEFAULT_REFERER.equals(referer)) return null;
+        okhttp3.HttpUrl r = okhttp3.HttpUrl.parse(referer);
+        if (r == null || !WARMED.add(HostLimiter.key(r.host()))) return null;
+        Metrics.counter("logos_http_warmups_total").increment();
+        return new Request.Builder()
+                .url(r.newBuilder().encodedPath("/").query(null).fragment(null).build())
+                .get()
+                .header("User-Agent", UA)
+                .header("Accept", "text/html,*/*;q=0.8")
+                .build();
+    }
+
+    // trimite cererea si ignora raspunsul (conteaza doar cookie-urile); nu esueaza niciodata
+    private static CompletableFuture<Void> discard(Request request) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        HTTP.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call c, IOException e) {
+                done.complete(null);
+            }
+
+            @Override
+            public void onResponse(Call c, Response res) {
+                res.close();
+                done.complete(null);
+            }
+        });
+        return done;
+    }
+
+    static String hostOf(String url) {
+        okhttp3.HttpUrl u = okhttp3.HttpUrl.parse(url);
+        return u == null ? "" : u.host();
     }
 
     private ImageFetcher() {}
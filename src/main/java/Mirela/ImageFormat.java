@@ -0,0 +1,42 @@
+package Mirela;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+// Formatul real al imaginii dupa primii octeti (magic numbers), independent de Content-Type si de extensie.
+public enum ImageFormat {
+    PNG, JPEG, GIF, WEBP, BMP, ICO, TIFF, SVG, UNKNOWN;
+
+    // suficient pentru toate semnaturile si pentru un prolog XML / comentariu inaintea lui <svg
+    public static final int SNIFF_BYTES = 512;
+
+    public static ImageFormat sniff(byte[] b, int len) {
+        len = Math.min(len, b.length);
+        if (len >= 8 && (b[0] & 0xFF) == 0x89 && b[1] == 'P' && b[2] == 'N' && b[3] == 'G') return PNG;
+        if (len >= 3 && (b[0] & 0xFF) == 0xFF && (b[1] & 0xFF) == 0xD8 && (b[2] & 0xFF) == 0xFF) return JPEG;
+        if (len >= 6 && b[0] == 'G' && b[1] == 'I' && b[2] == 'F' && b[3] == '8') return GIF;
+        if (len >= 12 && b[0] == 'R' && b[1] == 'I' && b[2] == 'F' && b[3] == 'F'
+                && b[8] == 'W' && b[9] == 'E' && b[10] == 'B' && b[11] == 'P') return WEBP;
+        if (len >= 14 && b[0] == 'B' && b[1] == 'M') return BMP;
+        // ICO (tip 1) si CUR (tip 2), cu cel putin o imagine in director
+        if (len >= 6 && b[0] == 0 && b[1] == 0 && (b[2] == 1 || b[2] == 2) && b[3] == 0
+                && (b[4] != 0 || b[5] != 0)) return ICO;
+        if (len >= 4 && ((b[0] == 'I' && b[1] == 'I' && b[2] == 42 && b[3] == 0)
+                || (b[0] == 'M' && b[1] == 'M' && b[2] == 0 && b[3] == 42))) return TIFF;
+        if (looksSvg(b, len)) return SVG;
+        return UNKNOWN;
+    }
+
+    private static boolean looksSvg(byte[] b, int len) {
+        int i = 0;
+        // BOM UTF-8 si spatii
+        if (len >= 3 && (b[0] & 0xFF) == 0xEF && (b[1] & 0xFF) == 0xBB && (b[2] & 0xFF) == 0xBF) i = 3;
+        while (i < len && (b[i] == ' ' || b[i] == '\t' || b[i] == '\r' || b[i] == '\n')) i++;
+        if (i >= len || b[i] != '<') return false;
+        String head = new String(b, i, len - i, StandardCharsets.ISO_8859_1).toLowerCase(Locale.ROOT);
+        if (head.startsWith("<svg")) return true;
+        // pagini HTML de eroare servite in locul imaginii
+        if (head.startsWith("<!doctype html") || head.startsWith("<html")) return false;
+        return head.contains("<svg") || head.startsWith("<?xml") || head.startsWith("<!doctype svg");
+    }
+}
@@ -1,38 +1,24 @@
 package Mirela;
 
-import javax.imageio.ImageIO;
-import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
 import java.util.Locale;
-import org.apache.commons.imaging.Imaging;
 
 public class ImageHasher {
-    
-    private static class BITranscoder extends org.apache.batik.transcoder.image.ImageTranscoder {
-        private BufferedImage image;
-        @Override 
-        public BufferedImage createImage(int w, int h) {
-            return new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
-        }
-        @Override 
-        public void writeImage(BufferedImage img, org.apache.batik.transcoder.TranscoderOutput out) {
-            this.image = img;
-        }
-        public BufferedImage getImage() { return image; }
-    }
 
+    // se incrementeaza cand se schimba algoritmul, ca hash-urile vechi din results.csv sa fie recalculate
+    public static final int HASH_VERSION = 4;
+    
     public static BufferedImage loadImage(String imageUrl) {
         return loadImage(imageUrl, guessReferer(imageUrl));
     }
     
     public static BufferedImage loadImage(String imageUrl, String referer) {
         try {
-            ImageFetcher.Payload payload = ImageFetcher.get(imageUrl, referer);
+            ImageFetcher.Payload payload = ImageFetcher.getImage(imageUrl, referer);
             String urlLower = imageUrl.toLowerCase(Locale.ROOT);
             String ct = payload.contentType == null ? "" : payload.contentType.toLowerCase(Locale.ROOT);
             
-            BufferedImage img = tryDecode(payload.bytes, urlLower, ct);
+            BufferedImage img = ImageDecoder.decode(payload.bytes, urlLower, ct);
             if (img == null || img.getWidth() * img.getHeight() < 16) {
                 return null;
             }
@@ -42,50 +28,6 @@ public class ImageHasher {
         }
     }
 
-    private static BufferedImage tryDecode(byte[] imgBytes, String urlLower, String contentTypeLower) throws Exception {
-        try (ByteArrayInputStream bin = new ByteArrayInputStream(imgBytes)) {
-            BufferedImage img = ImageIO.read(bin);
-            if (img != null) return img;
-        } catch (Throwable ignore) {}
-        
-        if (looksIco(urlLower, contentTypeLower)) {
-            try {
-                return Imaging.getBufferedImage(imgBytes);
-            } catch (Throwable ignore) {}
-        }
-        
-        try {
-            return Imaging.getBufferedImage(imgBytes);
-        } catch (Throwable ignore) {}
-        
-        if ((urlLower != null && urlLower.endsWith(".svg")) ||
-            (contentTypeLower != null && contentTypeLower.contains("image/svg"))) {
-            try {
-                return rasterizeSvg(imgBytes, 512);
-            } catch (Throwable ignore) {}
-        }
-        
-        return null;
-    }
-    
-    private static BufferedImage rasterizeSvg(byte[] svgBytes, int targetWidth) throws Exception {
-        BITranscoder t = new BITranscoder();
-        if (targetWidth > 0) {
-            t.addTranscodingHint(org.apache.batik.transcoder.SVGAbstractTranscoder.KEY_WIDTH, Float.valueOf(targetWidth));
-        }
-        org.apache.batik.transcoder.TranscoderInput in =
-                new org.apache.batik.transcoder.TranscoderInput(new ByteArrayInputStream(svgBytes));
-        t.transcode(in, null);
-        return t.getImage();
-    }
-    
-    private static boolean looksIco(String urlLower, String contentTypeLower) {
-        if (urlLower != null && urlLower.endsWith(".ico")) return true;
-        if (contentTypeLower == null) return false;
-        return contentTypeLower.contains("image/x-icon") || 
-               contentTypeLower.contains("image/vnd.microsoft.icon");
-    }
-    
     private static String guessReferer(String imageUrl) {
         try {
             java.net.URI uri = java.net.URI.create(imageUrl);
@@ -101,54 +43,81 @@ public class ImageHasher {
 
     public static long dHash(String imageUrl) {
         try {
-            BufferedImage image = loadImage(imageUrl);
+            ImageFetcher.Payload payload = ImageFetcher.getImage(imageUrl, guessReferer(imageUrl));
+            LogoCache.Decoded d = inspect(payload, imageUrl);
+            return d.width * d.height < 16 ? -1 : d.hash;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    // dimensiuni + dHash pentru un payload; rezultatul e memorat dupa digest-ul continutului, deci la rerulare nu mai decodam
+    public static LogoCache.Decoded inspect(ImageFetcher.Payload payload, String imageUrl) {
+        LogoCache cache = LogoCache.shared();
+        LogoCache.Decoded known = cache.decoded(payload.digest);
+        if (known != null) {
+            Metrics.counter("logos_decode_total", "result", "cached").increment();
+            return known;
+        }
+
+        String ct = payload.contentType == null ? "" : payload.contentType.toLowerCase(Locale.ROOT);
+        ImageFormat format = ImageDecoder.detect(payload.bytes, imageUrl.toLowerCase(Locale.ROOT), ct);
+        long t0 = System.nanoTime();
+        BufferedImage img;
+        try {
+            img = ImageDecoder.decode(payload.bytes, format);
+        } catch (ImageDecoder.TransientFailure e) {
+            // buget depasit / pool plin: nu memoram, continutul poate fi bun la urmatoarea incercare
+            Metrics.stage("decode").since(t0);
+            Metrics.counter("logos_decode_total", "result", "transient").increment();
+            return new LogoCache.Decoded(0, 0, -1);
+        }
+        Metrics.stage("decode").since(t0);
+        Metrics.counter("logos_decode_total", "result", img == null ? "failed" : "ok").increment();
+        long t1 = System.nanoTime();
+        LogoCache.Decoded d;
+        if (img == null) {
+            d = new LogoCache.Decoded(0, 0, -1);
+        } else if (format == ImageFormat.SVG) {
+            // SVG-ul e randat mic, doar pentru hash; validarea vede dimensiunile la 512 px latime, ca inainte
+            ImageProbe.Size size = SvgRasterizer.nominalSize(img);
+            d = new LogoCache.Decoded(size.width, size.height, dHash(img));
+        } else {
+            d = new LogoCache.Decoded(img.getWidth(), img.getHeight(), dHash(img));
+        }
+        if (img != null) Metrics.stage("hash").since(t1);
+        cache.putDecoded(payload.digest, d.width, d.height, d.hash);
+        return d;
+    }
+
+    public static long dHash(BufferedImage image) {
+        try {
             if (image == null) {
                 return -1;
             }
-            if (image.getColorModel().hasAlpha()) {
-                BufferedImage opaque = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
-                Graphics2D g2 = opaque.createGraphics();
-                g2.setPaint(Color.WHITE);
-                g2.fillRect(0, 0, opaque.getWidth(), opaque.getHeight());
-                g2.drawImage(image, 0, 0, null);
-                g2.dispose();
-                image = opaque;
-            }
-            
-            BufferedImage small = new BufferedImage(9, 8, BufferedImage.TYPE_INT_RGB);
-            Graphics2D g = small.createGraphics();
-            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-            g.drawImage(image, 0, 0, 9, 8, null);
-            g.dispose();
-            
-            if (small.getWidth() < 9 || small.getHeight() < 8) {
-                return -1;
-            }
-            long hash = 0L;
-            long bit = 0;
-            for (int y = 0; y < 8; y++) {
-                for (int x = 0; x < 8; x++) {
-                    int rgbL = small.getRGB(x, y);
-                    int rgbR = small.getRGB(x + 1, y);
-                    
-                    int rL = (rgbL >> 16) & 0xFF, gL = (rgbL >> 8) & 0xFF, bL = rgbL & 0xFF;
-                    int rR = (rgbR >> 16) & 0xFF, gR = (rgbR >> 8) & 0xFF, bR = rgbR & 0xFF;
-                    
-                    double yL = 0.2126 * rL + 0.7152 * gL + 0.0722 * bL;
-                    double yR = 0.2126 * rR + 0.7152 * gR + 0.0722 * bR;
-                    
-                    if (yL > yR) {
-                        hash |= (1L << bit);
-                    }
-                    bit++;
-                }
-            }
-            
-            return hash;
+            return DHashKernel.hash(image);
         } catch (Exception e) {
             return -1;
         }
     }
+
+    public static String formatHash(long hash) {
+        if (hash == -1) return "";
+        return HASH_VERSION + ":" + String.format("%016x", hash);
+    }
+
+    public static long parseHash(String s) {
+        if (s == null) return -1;
+        int colon = s.indexOf(':');
+        if (colon <= 0) return -1;
+        try {
+            if (Integer.parseInt(s.substring(0, colon).trim()) != HASH_VERSION) return -1;
+            return Long.parseUnsignedLong(s.substring(colon + 1).trim(), 16);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
     public static int hammingDistance(long h1, long h2) {
         if (h1 == -1 || h2 == -1) {
             return Integer.MAX_VALUE;
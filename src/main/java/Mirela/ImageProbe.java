@@ -0,0 +1,172 @@
+package Mirela;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Dimensiunile unei imagini citite doar din antet (primii KB), fara decodare: PNG IHDR, GIF logical screen,
+// JPEG SOFn, WebP VP8/VP8L/VP8X, BMP info header, directorul ICO, viewBox-ul din <svg>.
+// Intoarce null cand antetul nu ajunge sau formatul nu e suportat - atunci decide decodarea completa.
+public final class ImageProbe {
+
+    // latura minima acceptata pentru un logo raster (aceeasi regula ca dupa decodare); la SVG vezi svg()
+    public static final int MIN_SIDE = 16;
+
+    // destul pentru toate anteturile de mai sus, cu exceptia JPEG-urilor cu EXIF/ICC mare inaintea SOF
+    public static final int PROBE_BYTES = 4096;
+
+    private static final Pattern SVG_TAG = Pattern.compile("<svg\\b[^>]*>", Pattern.CASE_INSENSITIVE);
+    private static final Pattern VIEW_BOX = Pattern.compile(
+            "viewBox\\s*=\\s*[\"']\\s*[-+.\\deE]+[\\s,]+[-+.\\deE]+[\\s,]+([-+.\\deE]+)[\\s,]+([-+.\\deE]+)\\s*[\"']",
+            Pattern.CASE_INSENSITIVE);
+
+    public static final class Size {
+        public final int width;
+        public final int height;
+        Size(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+
+        public boolean tooSmall() {
+            return width < MIN_SIDE || height < MIN_SIDE;
+        }
+    }
+
+    public static Size probe(byte[] b, int len, ImageFormat format) {
+        len = Math.min(len, b.length);
+        try {
+            switch (format) {
+                case PNG:
+                    // semnatura (8) + lungime (4) + "IHDR" (4) + latime + inaltime
+                    return len >= 24 ? new Size(be32(b, 16), be32(b, 20)) : null;
+                case GIF:
+                    return len >= 10 ? new Size(le16(b, 6), le16(b, 8)) : null;
+                case JPEG:
+                    return jpeg(b, len);
+                case WEBP:
+                    return webp(b, len);
+                case BMP:
+                    return bmp(b, len);
+                case ICO:
+                    return ico(b, len);
+                case SVG:
+                    return svg(b, len);
+                default:
+                    return null;
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private static Size jpeg(byte[] b, int len) {
+        int i = 2;
+        while (i + 9 < len) {
+            if ((b[i] & 0xFF) != 0xFF) return null;
+            int marker = b[i + 1] & 0xFF;
+            if (marker == 0xFF) {
+                i++;
+                continue;
+            }
+            // markeri fara lungime (RSTn, TEM)
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+                i += 2;
+                continue;
+            }
+            // SOF0..SOF15, fara DHT (C4), JPG (C8), DAC (CC)
+            if (marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC) {
+                return new Size(be16(b, i + 7), be16(b, i + 5));
+            }
+            if (marker == 0xDA) return null;
+            i += 2 + be16(b, i + 2);
+        }
+        return null;
+    }
+
+    private static Size webp(byte[] b, int len) {
+        if (len < 30) return null;
+        String chunk = new String(b, 12, 4, StandardCharsets.ISO_8859_1);
+        switch (chunk) {
+            case "VP8 ":
+                // cadru cheie: 3 octeti tag + start code 9D 01 2A, apoi latime/inaltime pe 14 biti
+                return new Size(le16(b, 26) & 0x3FFF, le16(b, 28) & 0x3FFF);
+            case "VP8L": {
+                int bits = (b[21] & 0xFF) | (b[22] & 0xFF) << 8 | (b[23] & 0xFF) << 16 | (b[24] & 0xFF) << 24;
+                return new Size((bits & 0x3FFF) + 1, ((bits >>> 14) & 0x3FFF) + 1);
+            }
+            case "VP8X":
+                return new Size(le24(b, 24) + 1, le24(b, 27) + 1);
+            default:
+                return null;
+        }
+    }
+
+    private static Size bmp(byte[] b, int len) {
+        if (len < 26) return null;
+        int header = le32(b, 14);
+        if (header == 12) return new Size(le16(b, 18), le16(b, 20));
+        // inaltimea negativa inseamna imagine top-down
+        return new Size(le32(b, 18), Math.abs(le32(b, 22)));
+    }
+
+    private static Size ico(byte[] b, int len) {
+        int count = le16(b, 4);
+        int w = 0;
+        int h = 0;
+        for (int k = 0; k < count && 6 + 16 * k + 1 < len; k++) {
+            // 0 inseamna 256
+            int ew = b[6 + 16 * k] & 0xFF;
+            int eh = b[6 + 16 * k + 1] & 0xFF;
+            ew = ew == 0 ? 256 : ew;
+            eh = eh == 0 ? 256 : eh;
+            if ((long) ew * eh > (long) w * h) {
+                w = ew;
+                h = eh;
+            }
+        }
+        return w == 0 ? null : new Size(w, h);
+    }
+
+    // SVG-ul se rasterizeaza la ce latime vrem, deci aici respingem doar desenele goale (viewBox cu latime sau
+    // inaltime 0); orice alt viewBox, oricat de lat, nu da un verdict si decide validarea de dupa decodare
+    private static Size svg(byte[] b, int len) {
+        String head = new String(b, 0, len, StandardCharsets.UTF_8);
+        Matcher tag = SVG_TAG.matcher(head);
+        if (!tag.find()) return null;
+        Matcher vb = VIEW_BOX.matcher(tag.group());
+        if (!vb.find()) return null;
+        double w;
+        double h;
+        try {
+            w = Double.parseDouble(vb.group(1).toLowerCase(Locale.ROOT));
+            h = Double.parseDouble(vb.group(2).toLowerCase(Locale.ROOT));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return w > 0 && h > 0 ? null : new Size(0, 0);
+    }
+
+    private static int be16(byte[] b, int i) {
+        return (b[i] & 0xFF) << 8 | (b[i + 1] & 0xFF);
+    }
+
+    private static int be32(byte[] b, int i) {
+        return (b[i] & 0xFF) << 24 | (b[i + 1] & 0xFF) << 16 | (b[i + 2] & 0xFF) << 8 | (b[i + 3] & 0xFF);
+    }
+
+    private static int le16(byte[] b, int i) {
+        return (b[i] & 0xFF) | (b[i + 1] & 0xFF) << 8;
+    }
+
+    private static int le24(byte[] b, int i) {
+        return (b[i] & 0xFF) | (b[i + 1] & 0xFF) << 8 | (b[i + 2] & 0xFF) << 16;
+    }
+
+    private static int le32(byte[] b, int i) {
+        return (b[i] & 0xFF) | (b[i + 1] & 0xFF) << 8 | (b[i + 2] & 0xFF) << 16 | (b[i + 3] & 0xFF) << 24;
+    }
+
+    private ImageProbe() {}
+}
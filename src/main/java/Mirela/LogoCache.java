@@ -0,0 +1,320 @@
+package Mirela;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cache pe disc: entries/<sha256(url)>.json -> metadate HTTP + digest, blobs/<digest>.bin -> bytes,
+// blobs/<digest>.json -> dimensiuni + dHash. Acelasi continut servit de mai multe URL-uri e stocat o singura data.
+public final class LogoCache {
+
+    public static class Entry {
+        public final String url;
+        public final String etag;
+        public final String lastModified;
+        public final String contentType;
+        public final String digest;
+        public final long fetchedAt;
+
+        Entry(String url, String etag, String lastModified, String contentType, String digest, long fetchedAt) {
+            this.url = url;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.contentType = contentType;
+            this.digest = digest;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    public static class Decoded {
+        public final int width;
+        public final int height;
+        public final long hash;
+        // cand a fost decodat (ms); conteaza doar la esecuri, care expira dupa FAILURE_TTL_MS
+        final long decodedAt;
+
+        Decoded(int width, int height, long hash) {
+            this(width, height, hash, System.currentTimeMillis());
+        }
+
+        Decoded(int width, int height, long hash, long decodedAt) {
+            this.width = width;
+            this.height = height;
+            this.hash = hash;
+            this.decodedAt = decodedAt;
+        }
+
+        boolean failed() {
+            return width == 0;
+        }
+    }
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    // un esec de decodare poate fi si trecator (ex. codec lipsa la rularea aceea); il reincercam dupa atat
+    private static final long FAILURE_TTL_MS = TimeUnit.HOURS.toMillis(Long.getLong("logos.cache.failureTtlHours", 24L));
+
+    private static final LogoCache SHARED = open(
+            Path.of(System.getProperty("logos.cache.dir", ".logo-cache")),
+            Long.getLong("logos.cache.maxMb", 512L) * 1024 * 1024,
+            TimeUnit.HOURS.toMillis(Long.getLong("logos.cache.freshHours", 24L)));
+
+    private final Path entriesDir;
+    private final Path blobsDir;
+    private final long maxBytes;
+    private final long freshMillis;
+    private final boolean enabled;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Decoded> decoded = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    // digest-urile al caror blob e scris chiar acum; doar firul care l-a inregistrat scrie si numara octetii
+    private final ConcurrentHashMap<String, Boolean> writing = new ConcurrentHashMap<>();
+    private final Object evictLock = new Object();
+
+    public static LogoCache shared() {
+        return SHARED;
+    }
+
+    public static LogoCache open(Path dir, long maxBytes, long freshMillis) {
+        return new LogoCache(dir, maxBytes, freshMillis);
+    }
+
+    private LogoCache(Path dir, long maxBytes, long freshMillis) {
+        this.entriesDir = dir.resolve("entries");
+        this.blobsDir = dir.resolve("blobs");
+        this.maxBytes = maxBytes;
+        this.freshMillis = freshMillis;
+        boolean ok = maxBytes > 0;
+        if (ok) {
+            try {
+                Files.createDirectories(entriesDir);
+                Files.createDirectories(blobsDir);
+                load();
+            } catch (IOException e) {
+                System.err.println("Warning: logo cache disabled (" + dir + "): " + e.getMessage());
+                ok = false;
+            }
+        }
+        this.enabled = ok;
+    }
+
+    private void load() throws IOException {
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(blobsDir)) {
+            for (Path p : ds) {
+                String name = p.getFileName().toString();
+                if (name.endsWith(".bin")) {
+                    totalBytes.addAndGet(Files.size(p));
+                } else if (name.endsWith(".json")) {
+                    try {
+                        JsonNode n = JSON.readTree(p.toFile());
+                        if (n.path("hashVersion").asInt(-1) == ImageHasher.HASH_VERSION) {
+                            decoded.put(name.substring(0, name.length() - 5),
+                                    new Decoded(n.path("width").asInt(0), n.path("height").asInt(0),
+                                            n.path("hash").asLong(-1), n.path("decodedAt").asLong(0)));
+                        }
+                    } catch (IOException ignore) {}
+                }
+            }
+        }
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(entriesDir, "*.json")) {
+            for (Path p : ds) {
+                try {
+                    JsonNode n = JSON.readTree(p.toFile());
+                    Entry e = new Entry(n.path("url").asText(""), text(n, "etag"), text(n, "lastModified"),
+                            n.path("contentType").asText(""), n.path("digest").asText(""), n.path("fetchedAt").asLong(0));
+                    if (!e.url.isEmpty() && !e.digest.isEmpty()) entries.put(key(e.url), e);
+                } catch (IOException ignore) {}
+            }
+        }
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    public Entry lookup(String url) {
+        if (!enabled) return null;
+        Entry e = entries.get(key(url));
+        if (e == null || !Files.isRegularFile(blob(e.digest))) return null;
+        return e;
+    }
+
+    public boolean isFresh(Entry e) {
+        return e != null && System.currentTimeMillis() - e.fetchedAt < freshMillis;
+    }
+
+    public byte[] bytes(Entry e) {
+        try {
+            Path p = blob(e.digest);
+            byte[] b = Files.readAllBytes(p);
+            Files.setLastModifiedTime(p, FileTime.fromMillis(System.currentTimeMillis()));
+            return b;
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    // raspuns 304: continutul e acelasi, doar reimprospatam momentul validarii
+    public Entry revalidated(Entry e) {
+        Entry fresh = new Entry(e.url, e.etag, e.lastModified, e.contentType, e.digest, System.currentTimeMillis());
+        writeEntry(fresh);
+        return fresh;
+    }
+
+    public String put(String url, byte[] bytes, String contentType, String etag, String lastModified) {
+        String digest = sha256(bytes);
+        if (!enabled) return digest;
+        try {
+            Path p = blob(digest);
+            // doua fire cu acelasi continut ar trece amandoua de exists si l-ar numara de doua ori; al doilea
+            // sare scrierea (un lookup intre timp e doar un miss)
+            if (!Files.exists(p) && writing.putIfAbsent(digest, Boolean.TRUE) == null) {
+                try {
+                    if (!Files.exists(p)) {
+                        writeAtomically(p, bytes);
+                        totalBytes.addAndGet(bytes.length);
+                    }
+                } finally {
+                    writing.remove(digest);
+                }
+            }
+            writeEntry(new Entry(url, etag, lastModified, contentType == null ? "" : contentType, digest,
+                    System.currentTimeMillis()));
+            if (totalBytes.get() > maxBytes) evict();
+        } catch (IOException e) {
+            System.err.println("Warning: could not cache " + url + ": " + e.getMessage());
+        }
+        return digest;
+    }
+
+    public Decoded decoded(String digest) {
+        if (!enabled || digest == null) return null;
+        Decoded d = decoded.get(digest);
+        if (d != null && d.failed() && System.currentTimeMillis() - d.decodedAt > FAILURE_TTL_MS) {
+            decoded.remove(digest, d);
+            return null;
+        }
+        return d;
+    }
+
+    // width == 0 inseamna "nu s-a putut decoda" - nu mai incercam pentru acelasi continut pana la FAILURE_TTL_MS
+    public void putDecoded(String digest, int width, int height, long hash) {
+        if (!enabled || digest == null) return;
+        Decoded d = new Decoded(width, height, hash);
+        decoded.put(digest, d);
+        ObjectNode n = JSON.createObjectNode();
+        n.put("width", width);
+        n.put("height", height);
+        n.put("hash", hash);
+        n.put("hashVersion", ImageHasher.HASH_VERSION);
+        n.put("decodedAt", d.decodedAt);
+        try {
+            writeAtomically(blobsDir.resolve(digest + ".json"), JSON.writeValueAsBytes(n));
+        } catch (IOException ignore) {}
+    }
+
+    private void writeEntry(Entry e) {
+        ObjectNode n = JSON.createObjectNode();
+        n.put("url", e.url);
+        if (e.etag != null) n.put("etag", e.etag);
+        if (e.lastModified != null) n.put("lastModified", e.lastModified);
+        n.put("contentType", e.contentType);
+        n.put("digest", e.digest);
+        n.put("fetchedAt", e.fetchedAt);
+        entries.put(key(e.url), e);
+        try {
+            writeAtomically(entriesDir.resolve(key(e.url) + ".json"), JSON.writeValueAsBytes(n));
+        } catch (IOException ignore) {}
+    }
+
+    // LRU dupa mtime-ul blob-ului (atins la fiecare citire), pana coboram la 90% din limita
+    private void evict() {
+        synchronized (evictLock) {
+            if (totalBytes.get() <= maxBytes) return;
+            List<Path> blobs = new ArrayList<>();
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(blobsDir, "*.bin")) {
+                for (Path p : ds) blobs.add(p);
+            } catch (IOException e) {
+                return;
+            }
+            blobs.sort((a, b) -> Long.compare(mtime(a), mtime(b)));
+            long target = maxBytes * 9 / 10;
+            for (Path p : blobs) {
+                if (totalBytes.get() <= target) break;
+                try {
+                    long size = Files.size(p);
+                    Files.deleteIfExists(p);
+                    String name = p.getFileName().toString();
+                    String digest = name.substring(0, name.length() - 4);
+                    Files.deleteIfExists(blobsDir.resolve(digest + ".json"));
+                    decoded.remove(digest);
+                    totalBytes.addAndGet(-size);
+                } catch (IOException ignore) {}
+            }
+            // intrarile care arata spre blob-uri sterse devin miss la lookup; le curatam si de pe disc
+            entries.entrySet().removeIf(en -> {
+                if (Files.exists(blob(en.getValue().digest))) return false;
+                try {
+                    Files.deleteIfExists(entriesDir.resolve(en.getKey() + ".json"));
+                } catch (IOException ignore) {}
+                return true;
+            });
+        }
+    }
+
+    private Path blob(String digest) {
+        return blobsDir.resolve(digest + ".bin");
+    }
+
+    private static void writeAtomically(Path target, byte[] data) throws IOException {
+        Path tmp = Files.createTempFile(target.getParent(), "tmp", ".part");
+        try {
+            Files.write(tmp, data);
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static long mtime(Path p) {
+        try {
+            return Files.getLastModifiedTime(p).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static String text(JsonNode n, String field) {
+        return n.has(field) ? n.get(field).asText() : null;
+    }
+
+    private static String key(String url) {
+        return sha256(url.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String sha256(byte[] data) {
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-256").digest(data);
+            StringBuilder sb = new StringBuilder(d.length * 2);
+            for (byte b : d) sb.append(String.format("%02x", b));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
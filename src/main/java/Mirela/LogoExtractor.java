@@ -5,7 +5,9 @@ import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
@@ -14,10 +16,6 @@ import java.util.Locale;
 
 public class LogoExtractor {
 
-    private static final String UA =
-            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 " +
-                    "(KHTML, like Gecko) Chrome/122.0.0.0 Safari/537.36";
-
     public static class Candidate {
         public final String source;
         public final String absoluteUrl;
@@ -28,47 +26,44 @@ public class LogoExtractor {
         }
     }
 
-    private static org.jsoup.Connection connect(String url) {
-        return Jsoup.connect(url)
-                .userAgent(UA)
-                .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8")
-                .header("Accept-Language", "en-US,en;q=0.9")
-                .header("Upgrade-Insecure-Requests", "1")
-                .header("Sec-Fetch-Mode", "navigate")
-                .header("Sec-Fetch-Dest", "document")
-                .header("Sec-Fetch-Site", "none")
-                .header("Sec-Fetch-User", "?1")
-                .referrer("https://www.google.com/")
-                .followRedirects(true)
-                .timeout(20000);
+    public static class Site {
+        // radacina care a raspuns (null daca nicio varianta nu a mers si avem doar sondele standard)
+        public final String root;
+        public final List<Candidate> candidates;
+
+        public Site(String root, List<Candidate> candidates) {
+            this.root = root;
+            this.candidates = candidates;
+        }
     }
 
-    public List<Candidate> findAll(String siteUrl) throws Exception {
-        String norm = normalizeRoot(siteUrl);
+    private final SiteResolver resolver;
 
-        List<String> tries = new ArrayList<>();
-        tries.add(norm);
-        if (!norm.contains("://www.")) {
-            tries.add(norm.replace("://", "://www."));
-        }
-        tries.add(norm.replace("https://", "http://"));
-        if (!norm.contains("://www.")) {
-            tries.add(norm.replace("https://", "http://www."));
-        }
+    public LogoExtractor() {
+        this(SiteResolver.shared());
+    }
 
-        Document doc = null;
-        for (String t : tries) {
-            try {
-                Document d = connect(t).get();
-                if (d != null) {
-                    doc = d;
-                    norm = t;
-                    break;
-                }
-            } catch (Exception ignore) {}
+    public LogoExtractor(SiteResolver resolver) {
+        this.resolver = resolver;
+    }
+
+    public List<Candidate> findAll(String siteUrl) throws Exception {
+        return find(siteUrl).candidates;
+    }
+
+    // pagina vine prin clientul OkHttp comun (pool, HTTP/2, br/gzip, cookie-uri), variantele de URL sunt
+    // incercate in paralel de SiteResolver; Jsoup doar parseaza octetii
+    public Site find(String domain) throws Exception {
+        SiteResolver.Resolved site = null;
+        try {
+            site = resolver.resolve(domain);
+        } catch (InterruptedIOException e) {
+            throw e;
+        } catch (IOException ignore) {
         }
 
-        if (doc == null) {
+        if (site == null) {
+            String norm = SiteResolver.variants(domain).get(0);
             List<Candidate> out = new ArrayList<>();
             addIfUrl(out, "apple-touch-probe", toAbsolute(norm, "/apple-touch-icon.png"));
             addIfUrl(out, "apple-touch-probe", toAbsolute(norm, "/apple-touch-icon-precomposed.png"));
@@ -76,9 +71,40 @@ public class LogoExtractor {
             addIfUrl(out, "apple-touch-probe", toAbsolute(norm, "/apple-touch-icon-152x152.png"));
             addIfUrl(out, "apple-touch-probe", toAbsolute(norm, "/apple-touch-icon-120x120.png"));
             addIfUrl(out, "favicon", toAbsolute(norm, "/favicon.ico"));
-            return dedupeByUrl(prioritize(out));
+            return new Site(null, dedupeByUrl(prioritize(out)));
+        }
+
+        // de obicei ajunge <head>-ul plus primul header/nav (SiteResolver cere doar inceputul paginii)
+        ImageFetcher.Page page = site.page;
+        List<Candidate> found = candidatesFrom(parse(page), site.root);
+        if (page.complete || hasPageCandidates(found)) {
+            Metrics.counter("logos_page_total", "mode", page.complete ? "complete" : "head").increment();
+            return new Site(site.root, found);
+        }
+        // nimic in inceputul paginii: documentul intreg, o singura data
+        Metrics.counter("logos_page_total", "mode", "full_fallback").increment();
+        try {
+            return new Site(site.root, candidatesFrom(parse(ImageFetcher.getPage(page.finalUrl)), site.root));
+        } catch (InterruptedIOException e) {
+            throw e;
+        } catch (IOException e) {
+            return new Site(site.root, found);
+        }
+    }
+
+    private static Document parse(ImageFetcher.Page page) throws IOException {
+        return Jsoup.parse(new ByteArrayInputStream(page.bytes), page.charset, page.finalUrl);
+    }
+
+    // candidati gasiti efectiv in pagina, nu doar sondele standard (/apple-touch-icon.png, /favicon.ico)
+    private static boolean hasPageCandidates(List<Candidate> candidates) {
+        for (Candidate c : candidates) {
+            if (!"apple-touch-probe".equals(c.source) && !"favicon".equals(c.source)) return true;
         }
+        return false;
+    }
 
+    List<Candidate> candidatesFrom(Document doc, String norm) {
         List<Candidate> out = new ArrayList<>();
 
         for (Element el : doc.select(
@@ -114,8 +140,10 @@ public class LogoExtractor {
         for (Element el : doc.select("link[rel=manifest]")) {
             String murl = absUrl(doc, el.attr("href"));
             if (murl == null || murl.isEmpty()) continue;
+            long t0 = System.nanoTime();
             try {
                 byte[] jsonData = ImageFetcher.get(murl).bytes;
+                Metrics.stage("manifest_fetch").since(t0);
                 ObjectMapper om = new ObjectMapper();
                 JsonNode root = om.readTree(jsonData);
                 if (root != null && root.has("icons") && root.get("icons").isArray()) {
@@ -163,16 +191,6 @@ public class LogoExtractor {
         }
     }
 
-    private static String normalizeRoot(String u) throws Exception {
-        String in = u.trim();
-        if (!in.startsWith("http")) in = "https://" + in;
-        URL url = new URL(in);
-        String host = url.getHost();
-        if (!host.startsWith("www.")) host = "www." + host;
-        int port = url.getPort();
-        return new URL(url.getProtocol(), host, port, "/").toString();
-    }
-
     private static List<Candidate> dedupeByUrl(List<Candidate> in) {
         LinkedHashMap<String, Candidate> map = new LinkedHashMap<>();
         for (Candidate c : in) {
@@ -194,7 +212,7 @@ public class LogoExtractor {
         }
     }
 
-    private static List<Candidate> prioritize(List<Candidate> in) {
+    static List<Candidate> prioritize(List<Candidate> in) {
         List<Candidate> out = new ArrayList<>(in);
         out.sort((a, b) -> score(b) - score(a));
         return out;
@@ -204,7 +222,7 @@ public class LogoExtractor {
         return score(c.absoluteUrl);
     }
 
-    private static int score(String u) {
+    static int score(String u) {
         if (u == null) return 0;
         String s = u.toLowerCase(Locale.ROOT);
         int sc = 0;
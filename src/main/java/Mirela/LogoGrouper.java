@@ -3,13 +3,39 @@ package Mirela;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
-import java.sql.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
 
 public class LogoGrouper {
+
+    private static final int CONCURRENCY = Integer.getInteger("logos.concurrency", 32);
+    private static final boolean RESUME = Boolean.getBoolean("logos.resume");
+    private static final int GROUP_THREADS = Integer.getInteger("logos.groupThreads",
+            Runtime.getRuntime().availableProcessors());
+    private static final int PARALLEL_GROUP_MIN = Integer.getInteger("logos.parallelGroupMin", 20_000);
+    private static final Path METRICS_DIR = Path.of(System.getProperty("logos.metrics.dir", "metrics"));
+    private static final long METRICS_INTERVAL_SEC = Long.getLong("logos.metrics.intervalSec", 10L);
+    private static final Set<String> RETRY_STATUSES = parseStatuses(System.getProperty("logos.retry", ""));
+    // statusurile finale scrise de extractie; orice altceva (ex. "O" dintr-un "OK" taiat de un crash) nu e final.
+    // DEAD_HOST lipseste intentionat: e reincercat la fiecare reluare, iar daca circuitul din HostHealth e inca
+    // deschis randul iese imediat, fara nicio cerere
+    private static final Set<String> FINAL_STATUSES = Set.of("OK", "NO_LOGO", "UNREADABLE", "ERROR");
+    // cati candidati ai unui domeniu se descarca in paralel (1 = strict unul dupa altul)
+    private static final int RACE_K = Math.max(1, Integer.getInteger("logos.race.k", 3));
     
     static class LogoItem {
         String domain;
@@ -31,15 +57,20 @@ public class LogoGrouper {
         System.out.println("=== Logo Grouping by Similarity ===");
         System.out.println("Input: " + parquetPath);
         System.out.println("Output: " + outputFile);
+        System.out.println("Metrics: " + METRICS_DIR.resolve("metrics.json") + " (every " + METRICS_INTERVAL_SEC + " s)");
         System.out.println();
+        Metrics.startExporter(METRICS_DIR, METRICS_INTERVAL_SEC);
         
-        int totalDomainsInParquet = getTotalDomainsInParquet(parquetPath);
-        System.out.println("Total domains in parquet: " + totalDomainsInParquet);
-        System.out.println();
-         
-
         System.out.println("Step 1: Extracting logos from parquet file...");
-        Map<String, String> domainToLogo = extractLogos(parquetPath, resultsCsv);
+        // DNS-ul domeniilor dintr-un lot e rezolvat in fundal cat timp workerii termina lotul anterior
+        DomainSource source = DomainSource.fromProperties(parquetPath)
+                .onBatch(batch -> batch.forEach(CachingDns.shared()::prefetch))
+                .start();
+        Map<String, LogoItem> domainToLogo = extractLogos(source, resultsCsv);
+        // numaratoarea vine din aceeasi scanare, dupa ce s-a terminat
+        int totalDomainsInParquet = source.total();
+        System.out.println("Total domains in parquet (" + source.describeShard() + "): " + totalDomainsInParquet +
+                " (" + source.rowsScanned() + " rows scanned)");
         int extractedCount = domainToLogo.size();
         System.out.println("Extracted " + extractedCount + " logos");
                 
@@ -58,7 +89,9 @@ public class LogoGrouper {
         System.out.println("Hashed " + items.size() + " logos");
         
         System.out.println("\nStep 3: Grouping similar logos...");
+        long groupStart = System.nanoTime();
         Map<Integer, List<LogoItem>> groups = groupLogos(items);
+        Metrics.stage("grouping").since(groupStart);
         System.out.println("Created " + groups.size() + " groups");
         
         System.out.println("\nStep 4: Writing results...");
@@ -81,30 +114,12 @@ public class LogoGrouper {
         System.out.println("  Similar logo groups: " + similarGroupsCount);
         System.out.println("  Unique logos: " + uniqueLogosCount);
         System.out.println("  Output file: " + outputFile);
+        Metrics.stopExporter(METRICS_DIR);
     }
     
-    private static int getTotalDomainsInParquet(String parquetPath) {
-        try {
-            Class.forName("org.duckdb.DuckDBDriver");
-            try (Connection con = DriverManager.getConnection("jdbc:duckdb:");
-                 Statement st = con.createStatement();
-                 ResultSet rs = st.executeQuery(
-                         "SELECT COUNT(DISTINCT domain) FROM read_parquet('" + 
-                         parquetPath.replace("\\", "/") + "') " +
-                         "WHERE domain IS NOT NULL AND domain <> ''")) {
-                if (rs.next()) {
-                    return rs.getInt(1);
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Warning: Could not read parquet file: " + e.getMessage());
-            return 0;
-        }
-        return 0;
-    }
-    
-    private static Map<String, String> loadFromResults(String resultsCsv) throws Exception {
-        Map<String, String> domainToLogo = new HashMap<>();
+    // ultimul rand pentru un domeniu castiga (reincercarile sunt adaugate la finalul fisierului)
+    private static Map<String, ResultsWriter.Row> loadFromResults(String resultsCsv) throws Exception {
+        Map<String, ResultsWriter.Row> previous = new LinkedHashMap<>();
         
         try (java.io.BufferedReader r = Files.newBufferedReader(Path.of(resultsCsv))) {
             String line;
@@ -116,255 +131,336 @@ public class LogoGrouper {
                 }
                 if (line.isBlank()) continue;
                 
+                // un rand taiat de un crash (ghilimele neinchise sau coloane lipsa) nu se numara; domeniul se reia
+                if (line.chars().filter(ch -> ch == '"').count() % 2 != 0) continue;
                 List<String> cols = parseCsv(line);
-                if (cols.size() >= 4) {
+                // 5 coloane (fisierele vechi, fara hash) sau 6
+                if (cols.size() == 5 || cols.size() == 6) {
+                    String domain = unquote(cols.get(0));
                     String status = unquote(cols.get(3));
-                    if (status != null && status.equalsIgnoreCase("OK")) {
-                        String domain = unquote(cols.get(0));
-                        String logoUrl = unquote(cols.get(2));
-                        if (domain != null && logoUrl != null && !logoUrl.isEmpty()) {
-                            domainToLogo.put(domain, logoUrl);
-                        }
-                    }
+                    if (domain == null || domain.isEmpty() || status == null) continue;
+                    String error = unquote(cols.get(4));
+                    long hash = cols.size() == 6 ? ImageHasher.parseHash(unquote(cols.get(5))) : -1;
+                    // cheia e normalizata la fel ca in DomainSource, ca reluarea sa gaseasca domeniul
+                    String key = DomainSource.normalize(domain);
+                    previous.remove(key);
+                    previous.put(key, new ResultsWriter.Row(domain, unquote(cols.get(1)), unquote(cols.get(2)),
+                            status.toUpperCase(Locale.ROOT), error, hash));
                 }
             }
         }
         
-        return domainToLogo;
+        return previous;
     }
 
-private static Map<String, String> extractLogos(String parquetPath, String resultsCsv) throws Exception {
-    Map<String, String> domainToLogo = new HashMap<>();
-    LogoExtractor extractor = new LogoExtractor();
-    int processed = 0;
-    int success = 0;
-    
-    Class.forName("org.duckdb.DuckDBDriver");
-    
-    try (BufferedWriter csvWriter = Files.newBufferedWriter(Path.of(resultsCsv),
-            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-         Connection con = DriverManager.getConnection("jdbc:duckdb:");
-         Statement st = con.createStatement();
-         ResultSet rs = st.executeQuery(
-                 "SELECT DISTINCT domain FROM read_parquet('" + 
-                 parquetPath.replace("\\", "/") + "') " +
-                 "WHERE domain IS NOT NULL AND domain <> ''")) {
-        
-        csvWriter.write("domain,home_url,logo_url,status,error\n");
-        
-        while (rs.next()) {
-            String domain = rs.getString(1).trim();
-            processed++;
-            
-            if (processed % 100 == 0) {
-                System.out.println("  Processed: " + processed + ", Success: " + success);
-                csvWriter.flush(); // Flush periodically
+    // rescrie results.csv fara duplicate si fara randurile care vor fi reincercate (fisier temporar + move atomic)
+    private static void compactResults(String resultsCsv, Collection<ResultsWriter.Row> keep) throws IOException {
+        Path target = Path.of(resultsCsv).toAbsolutePath();
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (ResultsWriter w = new ResultsWriter(Files.newBufferedWriter(tmp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING), ResultsWriter.HEADER, false)) {
+            long seq = 0;
+            for (ResultsWriter.Row row : keep) {
+                w.submit(seq++, row);
             }
-            
-            String homeUrl = null;
-            String logoUrl = null;
-            String status = "OK";
-            String error = "";
-            
-            try {
-                List<String> urlVariations = new ArrayList<>();
-                String baseDomain = domain;
-                if (!baseDomain.startsWith("http://") && !baseDomain.startsWith("https://")) {
-                    urlVariations.add("https://" + baseDomain);
-                    urlVariations.add("https://www." + baseDomain);
-                    urlVariations.add("http://" + baseDomain);
-                    urlVariations.add("http://www." + baseDomain);
-                } else {
-                    urlVariations.add(baseDomain);
-                    // Add www version
-                    if (baseDomain.contains("://www.")) {
-                        urlVariations.add(baseDomain.replace("://www.", "://"));
-                    } else {
-                        urlVariations.add(baseDomain.replace("://", "://www."));
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static boolean isDone(ResultsWriter.Row row) {
+        return row != null && FINAL_STATUSES.contains(row.status) && !RETRY_STATUSES.contains(row.status);
+    }
+
+    private static Set<String> parseStatuses(String list) {
+        Set<String> out = new HashSet<>();
+        for (String s : list.split(",")) {
+            if (!s.isBlank()) out.add(s.trim().toUpperCase(Locale.ROOT));
+        }
+        return out;
+    }
+
+    private static Map<String, LogoItem> extractLogos(DomainSource source, String resultsCsv) throws Exception {
+        Map<String, LogoItem> domainToLogo = new ConcurrentHashMap<>();
+        LogoExtractor extractor = new LogoExtractor();
+        Semaphore inFlight = new Semaphore(CONCURRENCY);
+        Metrics.gauge("logos_domains_in_flight", () -> CONCURRENCY - inFlight.availablePermits());
+        ExecutorService pool = Executors.newFixedThreadPool(CONCURRENCY, r -> {
+            Thread t = new Thread(r, "extract");
+            t.setDaemon(true);
+            return t;
+        });
+        long startNanos = System.nanoTime();
+        long seq = 0;
+        int skipped = 0;
+
+        System.out.println("  Concurrency: " + CONCURRENCY + " (per request host: " + ImageFetcher.PER_HOST +
+                ", min delay: " + ImageFetcher.HOST_DELAY_MS + " ms, candidates raced: " + RACE_K + ")");
+
+        Map<String, ResultsWriter.Row> previous = new HashMap<>();
+        boolean append = RESUME && Files.isRegularFile(Path.of(resultsCsv));
+        if (append) {
+            previous = loadFromResults(resultsCsv);
+            List<ResultsWriter.Row> keep = new ArrayList<>();
+            for (ResultsWriter.Row row : previous.values()) {
+                if (isDone(row)) keep.add(row);
+            }
+            compactResults(resultsCsv, keep);
+            System.out.println("  Resuming from " + resultsCsv + ": " + keep.size() + " domains done" +
+                    (RETRY_STATUSES.isEmpty() ? "" : ", retrying " + RETRY_STATUSES));
+        }
+
+        BufferedWriter csvWriter = append
+                ? Files.newBufferedWriter(Path.of(resultsCsv), StandardOpenOption.APPEND)
+                : Files.newBufferedWriter(Path.of(resultsCsv), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        try (ResultsWriter results = new ResultsWriter(csvWriter, append ? null : ResultsWriter.HEADER, true)) {
+            // domeniile vin deja normalizate si unice; next() blocheaza pana soseste urmatorul lot din scanare
+            String next;
+            while ((next = source.next()) != null) {
+                String domain = next;
+
+                ResultsWriter.Row done = previous.get(domain);
+                if (isDone(done)) {
+                    if ("OK".equals(done.status)) {
+                        domainToLogo.put(domain, new LogoItem(domain, done.logoUrl, done.hash));
                     }
+                    skipped++;
+                    continue;
                 }
-                
-                List<LogoExtractor.Candidate> logos = new ArrayList<>();
-                Exception lastException = null;
-                
-                for (String siteUrl : urlVariations) {
+                long rowSeq = seq++;
+
+                inFlight.acquire();
+                pool.execute(() -> {
+                    ResultsWriter.Row row;
                     try {
-                        List<LogoExtractor.Candidate> candidates = extractor.findAll(siteUrl);
-                        if (!candidates.isEmpty()) {
-                            logos = candidates;
-                            homeUrl = siteUrl;
-                            break;
-                        }
-                    } catch (Exception e) {
-                        lastException = e;
+                        // politetea per host e aplicata de ImageFetcher pe fiecare cerere, nu aici pe domeniu
+                        long t0 = System.nanoTime();
+                        row = extractDomain(extractor, domain);
+                        Metrics.stage("domain").since(t0);
+                    } catch (RuntimeException e) {
+                        row = new ResultsWriter.Row(domain, null, null, "ERROR", errorText(e));
+                    } finally {
+                        inFlight.release();
                     }
-                }
-                
-                if (logos.isEmpty()) {
-                    status = "NO_LOGO";
-                } else {
-                    String referer = buildReferer(homeUrl != null ? homeUrl : domain);
-                    boolean found = false;
-                    
-                    for (LogoExtractor.Candidate c : logos) {
+                    if ("OK".equals(row.status)) {
+                        domainToLogo.put(domain, new LogoItem(domain, row.logoUrl, row.hash));
+                    }
+                    results.submit(rowSeq, row);
+                });
+            }
+
+            pool.shutdown();
+            while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                System.out.println("  Waiting for " + (CONCURRENCY - inFlight.availablePermits()) + " in-flight domains...");
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        double secs = (System.nanoTime() - startNanos) / 1e9;
+        System.out.println("  Final: " + seq + " processed, " + skipped + " reused from " + resultsCsv + ", " +
+                domainToLogo.size() + " successful");
+        System.out.println("  Throughput: " + String.format("%.2f domains/s", secs > 0 ? seq / secs : 0) +
+                " (" + String.format("%.1f", secs) + " s)");
+        System.out.println("  Results saved to: " + resultsCsv);
+        return domainToLogo;
+    }
+
+    private static ResultsWriter.Row extractDomain(LogoExtractor extractor, String domain) {
+        String homeUrl = null;
+        String logoUrl = null;
+        String status = "OK";
+        String error = "";
+        long hash = -1;
+
+        // host mort (din rularea asta sau dintr-una recenta): nu mai pierdem timeout-uri pe el
+        HostHealth health = HostHealth.shared();
+        if (health.isOpen(domain)) {
+            return new ResultsWriter.Row(domain, null, null, "DEAD_HOST", health.reason(domain), -1);
+        }
+
+        try {
+            // variantele https/http x www sunt incercate in paralel o singura data, in SiteResolver
+            LogoExtractor.Site site = extractor.find(domain);
+            List<LogoExtractor.Candidate> logos = site.candidates;
+            homeUrl = site.root;
+
+            if (logos.isEmpty()) {
+                status = "NO_LOGO";
+            } else {
+                String referer = buildReferer(homeUrl != null ? homeUrl : domain);
+                boolean found = false;
+
+                // cel mult RACE_K candidati se descarca simultan, dar ii asteptam in ordinea prioritatii: primul
+                // acceptat e cel mai bun care a reusit, iar restul sunt anulati. Un candidat picat elibereaza locul
+                // pentru urmatorul, deci un server mort costa un singur timeout, nu cate unul pentru fiecare.
+                List<CompletableFuture<ImageFetcher.Payload>> fetches = new ArrayList<>();
+                try {
+                    for (int i = 0; i < logos.size() && !found; i++) {
+                        while (fetches.size() < logos.size() && fetches.size() < i + RACE_K) {
+                            fetches.add(startFetch(logos.get(fetches.size()).absoluteUrl, referer));
+                        }
+                        LogoExtractor.Candidate c = logos.get(i);
                         try {
-                            ImageFetcher.Payload payload = fetchWithRetry(c.absoluteUrl, referer, 2);                            String ct = payload.contentType == null ? "" : payload.contentType.toLowerCase();
-                            java.awt.image.BufferedImage img = ImageDecoder.decode(
-                                payload.bytes, 
-                                c.absoluteUrl.toLowerCase(), 
-                                ct
-                            );
-                            
-                            if (img != null && img.getWidth() >= 16 && img.getHeight() >= 16) {
+                            ImageFetcher.Payload payload = ImageFetcher.await(fetches.get(i));
+                            // decodare + hash o singura data (sau deloc, daca acelasi continut e deja in cache)
+                            LogoCache.Decoded img = ImageHasher.inspect(payload, c.absoluteUrl);
+
+                            if (img.width >= ImageProbe.MIN_SIDE && img.height >= ImageProbe.MIN_SIDE && img.hash != -1) {
                                 homeUrl = homeUrl != null ? homeUrl : domain;
                                 logoUrl = c.absoluteUrl;
                                 status = "OK";
-                                domainToLogo.put(domain, c.absoluteUrl);
-                                success++;
+                                // hash-ul vine din extractie - Step 2 nu mai descarca nimic
+                                hash = img.hash;
                                 found = true;
-                                break;
                             }
+                        } catch (InterruptedIOException e) {
+                            throw e;
                         } catch (Exception e) {
                         }
                     }
-                    
-                    if (!found) {
-                        status = "UNREADABLE";
+                } finally {
+                    for (CompletableFuture<ImageFetcher.Payload> f : fetches) {
+                        if (f.cancel(true)) Metrics.counter("logos_race_cancelled_total").increment();
                     }
                 }
-            } catch (Exception e) {
-                status = "ERROR";
-                error = e.getClass().getSimpleName();
-                if (e.getMessage() != null && !e.getMessage().isEmpty()) {
-                    error += ": " + e.getMessage().substring(0, Math.min(50, e.getMessage().length()));
+
+                if (!found) {
+                    status = "UNREADABLE";
                 }
             }
-           
-            
-            csvWriter.write(csv(domain) + "," + csv(homeUrl) + "," + csv(logoUrl) + "," + csv(status) + "," + csv(error) + "\n");
-            
-            Thread.sleep(50);
+        } catch (Exception e) {
+            status = "ERROR";
+            error = errorText(e);
         }
-        
-        csvWriter.flush();
+
+        return new ResultsWriter.Row(domain, homeUrl, logoUrl, status, error, hash);
     }
-    
-    System.out.println("  Final: " + processed + " processed, " + success + " successful");
-    System.out.println("  Results saved to: " + resultsCsv);
-    return domainToLogo;
-}
-private static ImageFetcher.Payload fetchWithRetry(String url, String referer, int maxRetries) throws IOException {
-    Exception lastEx = null;
-    for (int i = 0; i < maxRetries; i++) {
-        try {
-            return ImageFetcher.get(url, referer);
-        } catch (Exception e) {
-            lastEx = e;
-            if (i < maxRetries - 1) {
-                try {
-                    Thread.sleep(100 * (i + 1));
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    throw new IOException("Interrupted", ie);
-                }
-            }
+
+    private static String errorText(Exception e) {
+        String error = e.getClass().getSimpleName();
+        if (e.getMessage() != null && !e.getMessage().isEmpty()) {
+            error += ": " + e.getMessage().substring(0, Math.min(50, e.getMessage().length()));
         }
+        return error;
     }
-    throw new IOException("Failed after " + maxRetries + " retries: " + 
-        (lastEx != null ? lastEx.getMessage() : "unknown"), lastEx);
-}
-     private static List<LogoItem> hashLogos(Map<String, String> domainToLogo) {
+
+    // descarcare asincrona cu 2 incercari; backoff-ul e programat in ImageFetcher, fara fir blocat
+    private static CompletableFuture<ImageFetcher.Payload> startFetch(String url, String referer) {
+        long t0 = System.nanoTime();
+        CompletableFuture<ImageFetcher.Payload> f = ImageFetcher.getImageWithRetryAsync(url, referer, 2);
+        f.whenComplete((p, e) -> {
+            if (e == null) Metrics.stage("image_fetch").since(t0);
+        });
+        return f;
+    }
+
+     private static List<LogoItem> hashLogos(Map<String, LogoItem> domainToLogo) {
         List<LogoItem> items = new ArrayList<>();
         int count = 0;
+        int fetched = 0;
         
-        for (Map.Entry<String, String> entry : domainToLogo.entrySet()) {
+        for (LogoItem item : domainToLogo.values()) {
             count++;
             if (count % 100 == 0) {
                 System.out.println("  Hashed: " + count + "/" + domainToLogo.size());
             }
             
-            long hash = ImageHasher.dHash(entry.getValue());
-            if (hash != -1) {
-                items.add(new LogoItem(entry.getKey(), entry.getValue(), hash));
+            // doar logo-urile fara hash din extractie mai sunt descarcate
+            if (item.hash == -1) {
+                item.hash = ImageHasher.dHash(item.logoUrl);
+                fetched++;
+            }
+            if (item.hash != -1) {
+                items.add(item);
             }
         }
         
+        if (fetched > 0) {
+            System.out.println("  Re-fetched " + fetched + " logos without a hash from extraction");
+        }
         return items;
     }
 
-    private static Map<Integer, List<LogoItem>> groupLogos(List<LogoItem> items) {
+    static Map<Integer, List<LogoItem>> groupLogos(List<LogoItem> items) throws InterruptedException {
         final int THRESHOLD = 8;
         
         int n = items.size();
-        int[] parent = new int[n];
-        for (int i = 0; i < n; i++) parent[i] = i;
         
-        Map<Long, List<Integer>> buckets = new HashMap<>();
-        long mask = 0xFFF;
-        for (int i = 0; i < n; i++) {
-            long key = (items.get(i).hash >>> 52) & mask;
-            buckets.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
-        }
+        long[] hashes = new long[n];
+        for (int i = 0; i < n; i++) hashes[i] = items.get(i).hash;
+        HammingIndex index = new HammingIndex(hashes, THRESHOLD);
         
-        System.out.println("  Comparing logos for similarity (threshold: " + THRESHOLD + " bits difference)...");
-        int comparisons = 0;
-        int unions = 0;
-
-        for (List<Integer> bucket : buckets.values()) {
-            for (int i = 0; i < bucket.size(); i++) {
-                for (int j = i + 1; j < bucket.size(); j++) {
-                    int idx1 = bucket.get(i);
-                    int idx2 = bucket.get(j);
-                    long h1 = items.get(idx1).hash;
-                    long h2 = items.get(idx2).hash;
-                    int dist = Long.bitCount(h1 ^ h2);
-                    comparisons++;
-                    
-                    if (dist <= THRESHOLD) {
-                        if (find(parent, idx1) != find(parent, idx2)) {
-                            union(parent, idx1, idx2);
-                            unions++;
-                        }
-                    }
-                }
-            }
-        }
+        System.out.println("  Comparing logos for similarity (threshold: " + THRESHOLD + " bits difference, " +
+                index.chunks() + " index tables, " + (HammingScan.vectorized() ? "SIMD" : "scalar") + " scan)...");
+        int[] roots = (GROUP_THREADS > 1 && n >= PARALLEL_GROUP_MIN)
+                ? connectParallel(index, GROUP_THREADS)
+                : connectSequential(index);
         
-        List<Long> bucketKeys = new ArrayList<>(buckets.keySet());
-        for (int i = 0; i < bucketKeys.size(); i++) {
-            for (int j = i + 1; j < bucketKeys.size(); j++) {
-                long key1 = bucketKeys.get(i);
-                long key2 = bucketKeys.get(j);
-                if (Long.bitCount(key1 ^ key2) <= 2) {
-                    List<Integer> list1 = buckets.get(key1);
-                    List<Integer> list2 = buckets.get(key2);
-                    for (int idx1 : list1) {
-                        for (int idx2 : list2) {
-                            comparisons++;
-                            long h1 = items.get(idx1).hash;
-                            long h2 = items.get(idx2).hash;
-                            int dist = Long.bitCount(h1 ^ h2);
-                            if (dist <= THRESHOLD) {
-                                if (find(parent, idx1) != find(parent, idx2)) {
-                                    union(parent, idx1, idx2);
-                                    unions++;
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        
-        System.out.println("  Made " + comparisons + " comparisons, created " + unions + " connections");
+        // grupurile apar in ordinea primului element, indiferent de radacina aleasa - aceeasi iesire pe ambele cai
         Map<Integer, List<LogoItem>> groups = new LinkedHashMap<>();
         for (int i = 0; i < n; i++) {
-            int root = find(parent, i);
-            groups.computeIfAbsent(root, k -> new ArrayList<>()).add(items.get(i));
+            groups.computeIfAbsent(roots[i], k -> new ArrayList<>()).add(items.get(i));
         }
         
         return groups;
     }
+
+    static int[] connectSequential(HammingIndex index) {
+        int n = index.size();
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) parent[i] = i;
+        long comparisons = 0;
+        int[] unions = {0};
+
+        for (int c = 0; c < index.chunks(); c++) {
+            comparisons += index.forEachPair(c, 0, index.values(c), (idx1, idx2) -> {
+                if (find(parent, idx1) != find(parent, idx2)) {
+                    union(parent, idx1, idx2);
+                    unions[0]++;
+                }
+            });
+        }
+
+        System.out.println("  Made " + comparisons + " comparisons, created " + unions[0] + " connections");
+        int[] roots = new int[n];
+        for (int i = 0; i < n; i++) roots[i] = find(parent, i);
+        return roots;
+    }
+
+    // intervalele de valori ale fiecarei tabele sunt independente: le impartim pe un ForkJoinPool (cateva felii
+    // pe fir, ca firele sa se echilibreze) si le unim prin union-find cu CAS
+    static int[] connectParallel(HammingIndex index, int threads) throws InterruptedException {
+        int n = index.size();
+        ConcurrentUnionFind uf = new ConcurrentUnionFind(n);
+        LongAdder comparisons = new LongAdder();
+        LongAdder unions = new LongAdder();
+        int slices = threads * 8;
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.submit(() -> IntStream.range(0, index.chunks() * slices).parallel().forEach(task -> {
+                int c = task / slices;
+                int s = task % slices;
+                int values = index.values(c);
+                int from = (int) ((long) values * s / slices);
+                int to = (int) ((long) values * (s + 1) / slices);
+                comparisons.add(index.forEachPair(c, from, to, (i, j) -> {
+                    if (uf.union(i, j)) unions.increment();
+                }));
+            })).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Parallel grouping failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        System.out.println("  Made " + comparisons.sum() + " comparisons, created " + unions.sum() +
+                " connections (" + threads + " threads)");
+        int[] roots = new int[n];
+        for (int i = 0; i < n; i++) roots[i] = uf.find(i);
+        return roots;
+    }
     
 
     private static void writeGroups(Map<Integer, List<LogoItem>> groups, String outputFile) throws Exception {
@@ -400,8 +496,11 @@ private static ImageFetcher.Payload fetchWithRetry(String url, String referer, i
     }
     
     private static int find(int[] p, int x) {
-
-        return p[x] == x ? x : (p[x] = find(p, p[x]));
+        while (p[x] != x) {
+            p[x] = p[p[x]];
+            x = p[x];
+        }
+        return x;
     }
     
     private static void union(int[] p, int a, int b) {
@@ -425,7 +524,7 @@ private static ImageFetcher.Payload fetchWithRetry(String url, String referer, i
         }
     }
     
-    private static String csv(String s) {
+    static String csv(String s) {
         if (s == null) return "\"\"";
         return "\"" + s.replace("\"", "\"\"") + "\"";
     }
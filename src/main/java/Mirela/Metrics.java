@@ -0,0 +1,226 @@
+package Mirela;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Metrici pentru tot pipeline-ul: contoare, histograme de latenta pe etape, gauge-uri si timp total per host.
+// Snapshot periodic in <dir>/metrics.json si <dir>/metrics.prom (format text Prometheus).
+public final class Metrics {
+
+    // limitele bucket-urilor in milisecunde
+    private static final double[] BOUNDS_MS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000};
+
+    private static final int TOP_HOSTS = 20;
+
+    public static final class Histogram {
+        private final LongAdder[] buckets = new LongAdder[BOUNDS_MS.length + 1];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sumNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+        Histogram() {
+            for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+        }
+
+        public void record(long nanos) {
+            double ms = nanos / 1e6;
+            int i = 0;
+            while (i < BOUNDS_MS.length && ms > BOUNDS_MS[i]) i++;
+            buckets[i].increment();
+            count.increment();
+            sumNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        public void since(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+    }
+
+    private static final ConcurrentHashMap<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Histogram> STAGES = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, LongSupplier> GAUGES = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, LongAdder> HOST_NANOS = new ConcurrentHashMap<>();
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static volatile ScheduledExecutorService exporter;
+
+    // nume in stil Prometheus, eventual cu etichete: logos_status_total{status="OK"}
+    public static LongAdder counter(String name) {
+        return COUNTERS.computeIfAbsent(name, k -> new LongAdder());
+    }
+
+    public static LongAdder counter(String name, String label, String value) {
+        return counter(name + "{" + label + "=\"" + escape(value) + "\"}");
+    }
+
+    public static Histogram stage(String stage) {
+        return STAGES.computeIfAbsent(stage, k -> new Histogram());
+    }
+
+    public static void gauge(String name, LongSupplier value) {
+        GAUGES.put(name, value);
+    }
+
+    public static void hostTime(String host, long nanos) {
+        if (host == null || host.isEmpty()) return;
+        HOST_NANOS.computeIfAbsent(HostLimiter.key(host), k -> new LongAdder()).add(nanos);
+    }
+
+    public static synchronized void startExporter(Path dir, long periodSeconds) {
+        if (exporter != null) return;
+        ScheduledExecutorService ses = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-exporter");
+            t.setDaemon(true);
+            return t;
+        });
+        ses.scheduleAtFixedRate(() -> {
+            try {
+                write(dir);
+            } catch (Exception e) {
+                System.err.println("Warning: could not write metrics: " + e.getMessage());
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+        exporter = ses;
+    }
+
+    public static synchronized void stopExporter(Path dir) {
+        if (exporter != null) {
+            exporter.shutdownNow();
+            exporter = null;
+        }
+        try {
+            write(dir);
+        } catch (IOException e) {
+            System.err.println("Warning: could not write metrics: " + e.getMessage());
+        }
+    }
+
+    public static synchronized void write(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        writeAtomically(dir.resolve("metrics.json"), JSON.writerWithDefaultPrettyPrinter().writeValueAsString(json()));
+        writeAtomically(dir.resolve("metrics.prom"), prometheus());
+    }
+
+    static ObjectNode json() {
+        ObjectNode root = JSON.createObjectNode();
+        root.put("timestamp", System.currentTimeMillis());
+        ObjectNode counters = root.putObject("counters");
+        for (Map.Entry<String, LongAdder> e : new TreeMap<>(COUNTERS).entrySet()) {
+            counters.put(e.getKey(), e.getValue().sum());
+        }
+        ObjectNode gauges = root.putObject("gauges");
+        for (Map.Entry<String, LongSupplier> e : new TreeMap<>(GAUGES).entrySet()) {
+            gauges.put(e.getKey(), e.getValue().getAsLong());
+        }
+        ObjectNode stages = root.putObject("stages");
+        for (Map.Entry<String, Histogram> e : new TreeMap<>(STAGES).entrySet()) {
+            Histogram h = e.getValue();
+            long count = h.count.sum();
+            ObjectNode s = stages.putObject(e.getKey());
+            s.put("count", count);
+            s.put("totalMs", h.sumNanos.sum() / 1_000_000);
+            s.put("meanMs", count == 0 ? 0 : h.sumNanos.sum() / 1e6 / count);
+            s.put("p50Ms", percentile(h, 0.50));
+            s.put("p90Ms", percentile(h, 0.90));
+            s.put("p99Ms", percentile(h, 0.99));
+            s.put("maxMs", h.maxNanos.get() / 1e6);
+        }
+        ArrayNode hosts = root.putArray("slowestHosts");
+        for (Map.Entry<String, Long> e : topHosts()) {
+            ObjectNode h = hosts.addObject();
+            h.put("host", e.getKey());
+            h.put("totalMs", e.getValue() / 1_000_000);
+        }
+        return root;
+    }
+
+    static String prometheus() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, LongAdder> e : new TreeMap<>(COUNTERS).entrySet()) {
+            sb.append(e.getKey()).append(' ').append(e.getValue().sum()).append('\n');
+        }
+        for (Map.Entry<String, LongSupplier> e : new TreeMap<>(GAUGES).entrySet()) {
+            sb.append(e.getKey()).append(' ').append(e.getValue().getAsLong()).append('\n');
+        }
+        if (!STAGES.isEmpty()) {
+            sb.append("# TYPE logos_stage_seconds histogram\n");
+        }
+        for (Map.Entry<String, Histogram> e : new TreeMap<>(STAGES).entrySet()) {
+            Histogram h = e.getValue();
+            String stage = "stage=\"" + escape(e.getKey()) + "\"";
+            long cumulative = 0;
+            for (int i = 0; i < BOUNDS_MS.length; i++) {
+                cumulative += h.buckets[i].sum();
+                sb.append("logos_stage_seconds_bucket{").append(stage).append(",le=\"")
+                        .append(String.format(Locale.ROOT, "%.3f", BOUNDS_MS[i] / 1000)).append("\"} ")
+                        .append(cumulative).append('\n');
+            }
+            cumulative += h.buckets[BOUNDS_MS.length].sum();
+            sb.append("logos_stage_seconds_bucket{").append(stage).append(",le=\"+Inf\"} ").append(cumulative).append('\n');
+            sb.append("logos_stage_seconds_sum{").append(stage).append("} ")
+                    .append(String.format(Locale.ROOT, "%.3f", h.sumNanos.sum() / 1e9)).append('\n');
+            sb.append("logos_stage_seconds_count{").append(stage).append("} ").append(h.count.sum()).append('\n');
+        }
+        for (Map.Entry<String, Long> e : topHosts()) {
+            sb.append("logos_host_seconds_total{host=\"").append(escape(e.getKey())).append("\"} ")
+                    .append(String.format(Locale.ROOT, "%.3f", e.getValue() / 1e9)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    // limita superioara a bucket-ului in care cade percentila (estimare conservatoare)
+    private static double percentile(Histogram h, double q) {
+        long count = h.count.sum();
+        if (count == 0) return 0;
+        long rank = (long) Math.ceil(q * count);
+        long cumulative = 0;
+        for (int i = 0; i < BOUNDS_MS.length; i++) {
+            cumulative += h.buckets[i].sum();
+            if (cumulative >= rank) return BOUNDS_MS[i];
+        }
+        return h.maxNanos.get() / 1e6;
+    }
+
+    private static List<Map.Entry<String, Long>> topHosts() {
+        List<Map.Entry<String, Long>> all = new ArrayList<>();
+        for (Map.Entry<String, LongAdder> e : HOST_NANOS.entrySet()) {
+            all.add(Map.entry(e.getKey(), e.getValue().sum()));
+        }
+        all.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        return all.subList(0, Math.min(TOP_HOSTS, all.size()));
+    }
+
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static void writeAtomically(Path target, String content) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (Writer w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            w.write(content);
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Metrics() {}
+}
@@ -0,0 +1,139 @@
+package Mirela;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+public final class ResultsWriter implements AutoCloseable {
+
+    public static final String HEADER = "domain,home_url,logo_url,status,error,hash\n";
+
+    public static class Row {
+        public final String domain;
+        public final String homeUrl;
+        public final String logoUrl;
+        public final String status;
+        public final String error;
+        public final long hash;
+
+        public Row(String domain, String homeUrl, String logoUrl, String status, String error) {
+            this(domain, homeUrl, logoUrl, status, error, -1);
+        }
+
+        public Row(String domain, String homeUrl, String logoUrl, String status, String error, long hash) {
+            this.domain = domain;
+            this.homeUrl = homeUrl;
+            this.logoUrl = logoUrl;
+            this.status = status;
+            this.error = error;
+            this.hash = hash;
+        }
+    }
+
+    private static final class Slot {
+        final long seq;
+        final Row row;
+
+        Slot(long seq, Row row) {
+            this.seq = seq;
+            this.row = row;
+        }
+    }
+
+    private static final Slot END = new Slot(-1, null);
+
+    private final BufferedWriter out;
+    private final boolean progress;
+    private final BlockingQueue<Slot> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private final long startNanos = System.nanoTime();
+    private volatile IOException failure;
+    private volatile int written;
+    private volatile int success;
+
+    // header == null cand se adauga la un fisier existent
+    public ResultsWriter(BufferedWriter out, String header, boolean progress) throws IOException {
+        this.out = out;
+        this.progress = progress;
+        if (header != null) out.write(header);
+        this.thread = new Thread(this::run, "results-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    // seq incepe de la 0; randurile sunt scrise strict in ordinea seq, indiferent de ordinea in care termina task-urile
+    public void submit(long seq, Row row) {
+        queue.add(new Slot(seq, row));
+    }
+
+    public int written() {
+        return written;
+    }
+
+    public int success() {
+        return success;
+    }
+
+    public double domainsPerSecond() {
+        double secs = (System.nanoTime() - startNanos) / 1e9;
+        return secs > 0 ? written / secs : 0;
+    }
+
+    private void run() {
+        Map<Long, Row> pending = new HashMap<>();
+        long next = 0;
+        try {
+            while (true) {
+                Slot s = queue.take();
+                if (s == END) break;
+                pending.put(s.seq, s.row);
+                Row r;
+                while ((r = pending.remove(next)) != null) {
+                    write(r);
+                    next++;
+                }
+            }
+            // goluri in secventa (task-uri pierdute) - scriem restul in ordine
+            for (Row r : new TreeMap<>(pending).values()) {
+                write(r);
+            }
+            out.flush();
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(Row r) throws IOException {
+        out.write(LogoGrouper.csv(r.domain) + "," + LogoGrouper.csv(r.homeUrl) + "," +
+                LogoGrouper.csv(r.logoUrl) + "," + LogoGrouper.csv(r.status) + "," +
+                LogoGrouper.csv(r.error) + "," + LogoGrouper.csv(ImageHasher.formatHash(r.hash)) + "\n");
+        written++;
+        if ("OK".equals(r.status)) success++;
+        if (progress) Metrics.counter("logos_status_total", "status", r.status).increment();
+        if (progress && written % 100 == 0) {
+            System.out.println("  Processed: " + written + ", Success: " + success +
+                    String.format(" (%.1f domains/s)", domainsPerSecond()));
+            out.flush(); // Flush periodically
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        queue.add(END);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } finally {
+            out.close();
+        }
+        if (failure != null) throw failure;
+    }
+}
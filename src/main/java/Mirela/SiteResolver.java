@@ -0,0 +1,184 @@
+package Mirela;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Gaseste pagina principala a unui domeniu: variantele (https/http x www/fara www) pornesc esalonat, in stil
+// happy eyeballs - urmatoarea porneste dupa STAGGER_MS sau imediat ce una esueaza; primul raspuns bun castiga,
+// celelalte sunt anulate. Radacina gasita e tinuta minte in <cache>/roots.tsv si incercata prima la rularile
+// urmatoare.
+public final class SiteResolver {
+
+    private static final long STAGGER_MS = Long.getLong("logos.resolve.staggerMs", 250L);
+
+    private static volatile SiteResolver shared;
+
+    public static final class Resolved {
+        public final String root;
+        public final ImageFetcher.Page page;
+        Resolved(String root, ImageFetcher.Page page) {
+            this.root = root;
+            this.page = page;
+        }
+    }
+
+    private final Path file;
+    private final ConcurrentHashMap<String, String> roots = new ConcurrentHashMap<>();
+
+    SiteResolver(Path file) {
+        this.file = file;
+        load();
+    }
+
+    public static SiteResolver shared() {
+        SiteResolver r = shared;
+        if (r == null) {
+            synchronized (SiteResolver.class) {
+                r = shared;
+                if (r == null) {
+                    r = new SiteResolver(Path.of(System.getProperty("logos.cache.dir", ".logo-cache"), "roots.tsv"));
+                    shared = r;
+                }
+            }
+        }
+        return r;
+    }
+
+    // www intai, ca in varianta secventiala: multe site-uri raspund doar acolo sau redirectioneaza spre el
+    static List<String> variants(String domain) {
+        String host = DomainSource.normalize(domain);
+        List<String> out = new ArrayList<>(4);
+        out.add("https://www." + host + "/");
+        out.add("https://" + host + "/");
+        out.add("http://www." + host + "/");
+        out.add("http://" + host + "/");
+        return out;
+    }
+
+    public Resolved resolve(String domain) throws IOException {
+        String key = DomainSource.normalize(domain);
+        List<String> tries = variants(key);
+        String known = roots.get(key);
+        if (known != null) {
+            // radacina de data trecuta, singura; daca nu mai merge, cursa normala pe celelalte variante
+            try {
+                Resolved r = race(List.of(known));
+                Metrics.counter("logos_resolve_total", "result", "cached").increment();
+                HostHealth.shared().observe(r.root, null, true);
+                return r;
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (IOException e) {
+                Metrics.counter("logos_resolve_total", "result", "stale").increment();
+                tries.remove(known);
+            }
+        }
+        Resolved r;
+        try {
+            r = race(tries);
+        } catch (InterruptedIOException e) {
+            throw e;
+        } catch (IOException e) {
+            Metrics.counter("logos_resolve_total", "result", "failed").increment();
+            // un singur esec pentru tot domeniul, si doar cand au picat toate variantele; perdantii cursei nu
+            // conteaza (un site doar cu www nu are de obicei DNS sau port 80 pe host-ul fara www)
+            HostHealth.shared().observe(tries.get(0), e, true);
+            throw e;
+        }
+        Metrics.counter("logos_resolve_total", "result", "raced").increment();
+        HostHealth.shared().observe(r.root, null, true);
+        remember(key, r.root);
+        return r;
+    }
+
+    private Resolved race(List<String> tries) throws IOException {
+        CompletableFuture<Resolved> winner = new CompletableFuture<>();
+        List<CompletableFuture<ImageFetcher.Page>> started = new ArrayList<>();
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        // castigatorul (sau anularea lui) opreste toate celelalte incercari
+        winner.whenComplete((r, e) -> {
+            synchronized (started) {
+                for (CompletableFuture<ImageFetcher.Page> f : started) f.cancel(true);
+            }
+        });
+
+        Runnable start = new Runnable() {
+            @Override
+            public void run() {
+                int i = next.getAndIncrement();
+                if (i >= tries.size() || winner.isDone()) return;
+                String root = tries.get(i);
+                long t0 = System.nanoTime();
+                CompletableFuture<ImageFetcher.Page> f = ImageFetcher.getPageAsync(root, true);
+                synchronized (started) {
+                    started.add(f);
+                }
+                if (winner.isDone()) f.cancel(true);
+                f.whenComplete((page, e) -> {
+                    long dt = System.nanoTime() - t0;
+                    Metrics.stage("homepage_fetch").record(dt);
+                    Metrics.hostTime(root, dt);
+                    if (e == null) {
+                        winner.complete(new Resolved(root, page));
+                        return;
+                    }
+                    if (winner.isDone()) return;
+                    Throwable cause = ImageFetcher.unwrap(e);
+                    Metrics.counter("logos_homepage_errors_total", "type", cause.getClass().getSimpleName()).increment();
+                    if (failed.incrementAndGet() == tries.size()) {
+                        winner.completeExceptionally(cause);
+                    } else {
+                        // un esec nu mai asteapta esalonarea
+                        run();
+                    }
+                });
+                if (i + 1 < tries.size()) {
+                    CompletableFuture.delayedExecutor(STAGGER_MS, TimeUnit.MILLISECONDS).execute(this);
+                }
+            }
+        };
+        start.run();
+        return ImageFetcher.await(winner);
+    }
+
+    private void load() {
+        if (!Files.isRegularFile(file)) return;
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                int tab = line.indexOf('\t');
+                if (tab > 0) roots.put(line.substring(0, tab), line.substring(tab + 1).trim());
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: could not read " + file + ": " + e.getMessage());
+        }
+    }
+
+    // ultima linie pentru un domeniu castiga la citire
+    private void remember(String domain, String root) {
+        if (root.equals(roots.put(domain, root))) return;
+        synchronized (this) {
+            try {
+                Files.createDirectories(file.getParent());
+                try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    w.write(domain + "\t" + root + "\n");
+                }
+            } catch (IOException e) {
+                System.err.println("Warning: could not write " + file + ": " + e.getMessage());
+            }
+        }
+    }
+}
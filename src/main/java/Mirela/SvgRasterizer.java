@@ -0,0 +1,207 @@
+package Mirela;
+
+import org.apache.batik.anim.dom.SAXSVGDocumentFactory;
+import org.apache.batik.transcoder.SVGAbstractTranscoder;
+import org.apache.batik.transcoder.TranscoderInput;
+import org.apache.batik.transcoder.TranscoderOutput;
+import org.apache.batik.transcoder.image.ImageTranscoder;
+import org.apache.batik.util.HaltingThread;
+import org.apache.batik.util.XMLResourceDescriptor;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Rasterizare SVG la rezolutia de care are nevoie dHash (grila 9x8), nu la 512 px: documentul e parsat o singura
+// data si randat direct la HASH_SIDE pe latura mare. Fiecare fir de randare isi pastreaza parserul; transcoderul
+// e nou la fiecare randare, pentru ca Batik pastreaza latimea/inaltimea calculate si le foloseste ca viewport
+// implicit pentru documentul urmator. Randarea ruleaza pe HaltingThread-uri, ca un SVG patologic sa poata fi
+// oprit dupa BUDGET_MS.
+public final class SvgRasterizer {
+
+    // latura mare a randarii folosite pentru hash
+    public static final int HASH_SIDE = Integer.getInteger("logos.svg.hashSide", 64);
+
+    // dimensiunile raportate pentru validare (MIN_SIDE) sunt cele ale vechii randari: latimea fixa de 512 px
+    public static final int VALIDATE_WIDTH = 512;
+
+    // latura mica nu coboara sub numarul de coloane din grila dHash (benzi foarte late)
+    private static final int MIN_SHORT_SIDE = 9;
+    private static final int MAX_SIDE = 1024;
+
+    private static final long BUDGET_MS = Long.getLong("logos.svg.budgetMs", 2000L);
+    private static final int THREADS = Integer.getInteger("logos.svg.threads",
+            Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+    private static class BITranscoder extends ImageTranscoder {
+        private BufferedImage image;
+        @Override
+        public BufferedImage createImage(int w, int h) {
+            return new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        }
+        @Override
+        public void writeImage(BufferedImage img, TranscoderOutput out) {
+            this.image = img;
+        }
+        BufferedImage take() {
+            BufferedImage img = image;
+            image = null;
+            return img;
+        }
+    }
+
+    private static final ThreadLocal<SAXSVGDocumentFactory> FACTORY = ThreadLocal.withInitial(
+            () -> new SAXSVGDocumentFactory(XMLResourceDescriptor.getXMLParserClassName()));
+
+    // pool marginit: o randare oprita care inca deseneaza tine un fir ocupat, dar nu pot creste la nesfarsit.
+    // Cu pool-ul si coada pline, cererea e refuzata (RejectedExecutionException), iar asteptarea in coada intra
+    // in buget; amandoua sunt esecuri trecatoare, pe care ImageDecoder nu le memoreaza
+    private static final ThreadPoolExecutor POOL = pool();
+
+    private static ThreadPoolExecutor pool() {
+        AtomicInteger n = new AtomicInteger();
+        ThreadPoolExecutor p = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(THREADS * 4), r -> {
+                    Thread t = new HaltingThread(r, "svg-render-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        p.allowCoreThreadTimeOut(true);
+        return p;
+    }
+
+    public static BufferedImage rasterize(byte[] svgBytes) throws Exception {
+        return rasterize(svgBytes, HASH_SIDE);
+    }
+
+    public static BufferedImage rasterize(byte[] svgBytes, int side) throws Exception {
+        AtomicReference<HaltingThread> worker = new AtomicReference<>();
+        Future<BufferedImage> f;
+        try {
+            f = POOL.submit(() -> {
+                HaltingThread self = (HaltingThread) Thread.currentThread();
+                self.clearHalted();
+                synchronized (worker) {
+                    worker.set(self);
+                }
+                try {
+                    return render(svgBytes, side);
+                } finally {
+                    synchronized (worker) {
+                        worker.set(null);
+                    }
+                    // un fir oprit la jumatatea randarii nu-si mai refoloseste parserul
+                    if (self.isHalted()) FACTORY.remove();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Metrics.counter("logos_svg_rejected_total").increment();
+            throw e;
+        }
+        try {
+            return f.get(BUDGET_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            halt(worker, f);
+            Metrics.counter("logos_svg_timeouts_total").increment();
+            throw e;
+        } catch (InterruptedException e) {
+            halt(worker, f);
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            throw e;
+        }
+    }
+
+    // Batik verifica flag-ul intre elemente cat construieste arborele GVT; desenarea propriu-zisa nu se opreste,
+    // dar apelantul nu o mai asteapta
+    private static void halt(AtomicReference<HaltingThread> worker, Future<BufferedImage> f) {
+        synchronized (worker) {
+            HaltingThread t = worker.get();
+            if (t != null) t.halt();
+        }
+        // inca in coada: o scoatem, ca locul sa se elibereze acum
+        if (f.cancel(false) && f instanceof Runnable) POOL.remove((Runnable) f);
+    }
+
+    // dimensiunile pe care le-ar avea desenul randat la VALIDATE_WIDTH latime, cu raportul de aspect al randarii;
+    // un wordmark 400x24 iese 512x31 si trece MIN_SIDE, ca inainte
+    public static ImageProbe.Size nominalSize(BufferedImage img) {
+        double scale = (double) VALIDATE_WIDTH / img.getWidth();
+        return new ImageProbe.Size(VALIDATE_WIDTH, (int) Math.max(1, Math.round(img.getHeight() * scale)));
+    }
+
+    // randarea pe firul curent; rasterize o trimite pe pool
+    static BufferedImage render(byte[] svgBytes, int side) throws Exception {
+        Document doc;
+        try (ByteArrayInputStream in = new ByteArrayInputStream(svgBytes)) {
+            doc = FACTORY.get().createDocument(null, in);
+        }
+        double[] size = intrinsicSize(doc.getDocumentElement());
+        BITranscoder t = new BITranscoder();
+        if (size == null) {
+            // fara dimensiuni proprii: doar latimea, fata de viewport-ul implicit (400x400) al transcoderului nou
+            t.addTranscodingHint(SVGAbstractTranscoder.KEY_WIDTH, (float) side);
+        } else {
+            // ambele laturi, cu raportul desenului, ca Batik sa nu le deduca din starea lui
+            int l = longSide(size, side);
+            double ratio = size[0] / size[1];
+            int w = ratio >= 1 ? l : (int) Math.max(1, Math.round(l * ratio));
+            int h = ratio >= 1 ? (int) Math.max(1, Math.round(l / ratio)) : l;
+            t.addTranscodingHint(SVGAbstractTranscoder.KEY_WIDTH, (float) w);
+            t.addTranscodingHint(SVGAbstractTranscoder.KEY_HEIGHT, (float) h);
+        }
+        t.transcode(new TranscoderInput(doc), null);
+        return t.take();
+    }
+
+    private static int longSide(double[] size, int side) {
+        if (size == null) return side;
+        double ratio = Math.max(size[0], size[1]) / Math.min(size[0], size[1]);
+        return (int) Math.min(MAX_SIDE, Math.max(side, Math.ceil(MIN_SHORT_SIDE * ratio)));
+    }
+
+    // viewBox, altfel width/height in unitati absolute; null cand nu se poate afla (procente, lipsa)
+    private static double[] intrinsicSize(Element root) {
+        if (root == null) return null;
+        String vb = root.getAttribute("viewBox").trim();
+        if (!vb.isEmpty()) {
+            String[] parts = vb.split("[\\s,]+");
+            if (parts.length == 4) {
+                double[] size = positive(number(parts[2]), number(parts[3]));
+                if (size != null) return size;
+            }
+        }
+        return positive(number(root.getAttribute("width")), number(root.getAttribute("height")));
+    }
+
+    private static double[] positive(double w, double h) {
+        return w > 0 && h > 0 ? new double[] {w, h} : null;
+    }
+
+    private static double number(String s) {
+        s = s.trim();
+        if (s.endsWith("%")) return -1;
+        int end = 0;
+        while (end < s.length() && (Character.isDigit(s.charAt(end)) || s.charAt(end) == '.')) end++;
+        try {
+            return end == 0 ? -1 : Double.parseDouble(s.substring(0, end));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private SvgRasterizer() {}
+}
@@ -0,0 +1,61 @@
+package Mirela;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// Varianta SIMD pentru HammingScan; folosita doar prin HammingScan, care prinde lipsa modulului.
+final class VectorHammingScan {
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    // VectorOperators.BIT_COUNT (JDK 19+, VPOPCNTQ unde exista); cautat prin reflectie ca sursa sa ramana pe 16
+    private static final VectorOperators.Unary BIT_COUNT = bitCount();
+
+    // fara popcount nativ pe benzi, SWAR-ul de mai jos abia tine pasul cu Long.bitCount scalar
+    static boolean nativePopcount() {
+        return BIT_COUNT != null;
+    }
+
+    static int matches(long q, long[] hashes, int from, int to, int threshold, int[] out) {
+        int n = 0;
+        int k = from;
+        int lanes = SPECIES.length();
+        for (int bound = from + SPECIES.loopBound(to - from); k < bound; k += lanes) {
+            LongVector x = LongVector.fromArray(SPECIES, hashes, k).lanewise(VectorOperators.XOR, q);
+            VectorMask<Long> hit = popcount(x).compare(VectorOperators.LE, threshold);
+            if (!hit.anyTrue()) continue;
+            for (int l = 0; l < lanes; l++) {
+                if (hit.laneIsSet(l)) out[n++] = k + l;
+            }
+        }
+        for (; k < to; k++) {
+            if (Long.bitCount(q ^ hashes[k]) <= threshold) out[n++] = k;
+        }
+        return n;
+    }
+
+    // popcount SWAR pe fiecare banda (VectorOperators.BIT_COUNT exista abia din JDK 19). Octetii se aduna cu
+    // shift-uri, nu cu mul: inmultirea pe benzi de 64 de biti nu are instructiune AVX2 si se descompune scump
+    private static LongVector popcount(LongVector x) {
+        if (BIT_COUNT != null) return x.lanewise(BIT_COUNT);
+        x = x.sub(x.lanewise(VectorOperators.LSHR, 1).and(0x5555555555555555L));
+        x = x.and(0x3333333333333333L).add(x.lanewise(VectorOperators.LSHR, 2).and(0x3333333333333333L));
+        x = x.add(x.lanewise(VectorOperators.LSHR, 4)).and(0x0F0F0F0F0F0F0F0FL);
+        x = x.add(x.lanewise(VectorOperators.LSHR, 8));
+        x = x.add(x.lanewise(VectorOperators.LSHR, 16));
+        x = x.add(x.lanewise(VectorOperators.LSHR, 32));
+        return x.and(0x7FL);
+    }
+
+    private static VectorOperators.Unary bitCount() {
+        try {
+            return (VectorOperators.Unary) VectorOperators.class.getField("BIT_COUNT").get(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private VectorHammingScan() {}
+}
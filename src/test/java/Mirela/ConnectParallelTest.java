@@ -0,0 +1,43 @@
+package Mirela;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// gruparea paralela (ConcurrentUnionFind) trebuie sa dea aceeasi partitie ca union-find-ul secvential;
+// radacinile alese pot diferi, deci comparam partitiile normalizate la cel mai mic indice din fiecare grup
+public class ConnectParallelTest extends TestCase {
+
+    public void testSamePartitionAsSequential() throws Exception {
+        for (int threshold : new int[] {3, 8, 12}) {
+            long[] hashes = HammingIndexTest.clustered(new Random(threshold), 20_000, 1500);
+            HammingIndex index = new HammingIndex(hashes, threshold);
+            int[] expected = canonical(LogoGrouper.connectSequential(index));
+            for (int threads : new int[] {2, 4, 8}) {
+                assertTrue("threshold " + threshold + ", threads " + threads,
+                        Arrays.equals(expected, canonical(LogoGrouper.connectParallel(index, threads))));
+            }
+        }
+    }
+
+    public void testChainsAcrossThreads() throws Exception {
+        // lant 0-1-2-...: fiecare pas intoarce un bit nou, deci capetele sunt departe dar ajung in acelasi grup
+        long[] hashes = new long[64];
+        for (int i = 1; i < hashes.length; i++) hashes[i] = hashes[i - 1] ^ (1L << i);
+        HammingIndex index = new HammingIndex(hashes, 1);
+        int[] roots = canonical(LogoGrouper.connectParallel(index, 8));
+        for (int r : roots) assertEquals(0, r);
+    }
+
+    // fiecare element primeste cel mai mic indice din grupul lui
+    private static int[] canonical(int[] roots) {
+        int n = roots.length;
+        int[] minOfRoot = new int[n];
+        Arrays.fill(minOfRoot, Integer.MAX_VALUE);
+        for (int i = 0; i < n; i++) minOfRoot[roots[i]] = Math.min(minOfRoot[roots[i]], i);
+        int[] out = new int[n];
+        for (int i = 0; i < n; i++) out[i] = minOfRoot[roots[i]];
+        return out;
+    }
+}
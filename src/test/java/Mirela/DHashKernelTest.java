@@ -0,0 +1,87 @@
+package Mirela;
+
+import junit.framework.TestCase;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.util.Random;
+
+// caile directe pe raster din DHashKernel trebuie sa dea acelasi hash ca vechea cale ARGB: imaginea e desenata
+// (Graphics2D, fara amestec) intr-una INT_ARGB mai mare, iar sub-imaginea decalata de acolo trece pe calea generica
+public class DHashKernelTest extends TestCase {
+
+    private static final int[] TYPES = {
+            BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_ARGB_PRE,
+            BufferedImage.TYPE_INT_BGR, BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR,
+            BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_BYTE_INDEXED, BufferedImage.TYPE_USHORT_GRAY,
+    };
+
+    public void testSameHashAsArgbPath() {
+        Random rnd = new Random(7);
+        for (int type : TYPES) {
+            // mai mici decat grila 9x8, nealiniate la ea si destul de mari cat sa fie esantionate
+            for (int[] size : new int[][] {{5, 3}, {9, 8}, {37, 21}, {64, 64}, {301, 97}}) {
+                BufferedImage img = blocks(new BufferedImage(size[0], size[1], type), rnd);
+                assertEquals("type " + type + ", " + size[0] + "x" + size[1],
+                        DHashKernel.hash(argbView(img)), DHashKernel.hash(img));
+            }
+        }
+    }
+
+    public void testIndexedPaletteWithAlpha() {
+        // paleta cu transparenta: indicele e tradus prin paleta, apoi compus peste alb ca la ARGB
+        Random rnd = new Random(11);
+        byte[] r = new byte[256];
+        byte[] g = new byte[256];
+        byte[] b = new byte[256];
+        byte[] a = new byte[256];
+        rnd.nextBytes(r);
+        rnd.nextBytes(g);
+        rnd.nextBytes(b);
+        rnd.nextBytes(a);
+        IndexColorModel palette = new IndexColorModel(8, 256, r, g, b, a);
+        BufferedImage img = new BufferedImage(48, 40, BufferedImage.TYPE_BYTE_INDEXED, palette);
+        for (int y = 0; y < img.getHeight(); y++) {
+            for (int x = 0; x < img.getWidth(); x++) img.getRaster().setSample(x, y, 0, (x / 6 * 31 + y / 5 * 17) & 0xFF);
+        }
+        assertEquals(DHashKernel.hash(argbView(img)), DHashKernel.hash(img));
+    }
+
+    public void testDifferentImagesDiffer() {
+        // garda impotriva unui test care trece pentru ca toate hash-urile ies 0
+        Random rnd = new Random(3);
+        long first = DHashKernel.hash(blocks(new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB), rnd));
+        long second = DHashKernel.hash(blocks(new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB), rnd));
+        assertTrue(first != 0 && first != second);
+    }
+
+    // blocuri de culori aleatoare (cu alpha aleator unde tipul il pastreaza), ca celulele sa difere intre ele
+    private static BufferedImage blocks(BufferedImage img, Random rnd) {
+        int bw = Math.max(1, img.getWidth() / 7);
+        int bh = Math.max(1, img.getHeight() / 5);
+        for (int y0 = 0; y0 < img.getHeight(); y0 += bh) {
+            for (int x0 = 0; x0 < img.getWidth(); x0 += bw) {
+                int argb = rnd.nextInt();
+                for (int y = y0; y < Math.min(img.getHeight(), y0 + bh); y++) {
+                    for (int x = x0; x < Math.min(img.getWidth(), x0 + bw); x++) img.setRGB(x, y, argb);
+                }
+            }
+        }
+        return img;
+    }
+
+    // copie ARGB ca in vechiul ImageHasher (drawImage; la BYTE_GRAY Java2D copiaza valoarea, pe cand getRGB o
+    // trateaza ca gri liniar), vazuta printr-o sub-imagine cu raster decalat (DHashKernel o citeste generic)
+    private static BufferedImage argbView(BufferedImage img) {
+        int w = img.getWidth();
+        int h = img.getHeight();
+        BufferedImage big = new BufferedImage(w + 1, h + 1, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = big.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.drawImage(img, 1, 1, null);
+        g.dispose();
+        return big.getSubimage(1, 1, w, h);
+    }
+}
@@ -0,0 +1,103 @@
+package Mirela;
+
+import junit.framework.TestCase;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+// HammingIndex trebuie sa intoarca exact perechile gasite de o scanare bruta, pentru orice prag si numar de bucati,
+// atat pe interogari (forEachNeighborAbove) cat si pe join (forEachPair)
+public class HammingIndexTest extends TestCase {
+
+    public void testMatchesBruteForce() {
+        long[] hashes = clustered(new Random(42), 3000, 300);
+        for (int threshold : new int[] {0, 1, 3, 8, 12}) {
+            Set<Long> expected = bruteForce(hashes, threshold);
+            int[] chunkCounts = {3, 4, 5, 8, 13, HammingIndex.defaultChunks(hashes.length, threshold)};
+            for (int chunks : chunkCounts) {
+                HammingIndex index = new HammingIndex(hashes, threshold, chunks);
+                assertEquals("threshold " + threshold + ", chunks " + chunks, expected, indexed(index));
+                assertEquals("join, threshold " + threshold + ", chunks " + chunks, expected, joined(index, 1));
+            }
+        }
+    }
+
+    public void testJoinSplitIntoRanges() {
+        // intervalele nu cad pe blocurile join-ului; impreuna trebuie sa dea aceleasi perechi, fiecare o data
+        long[] hashes = clustered(new Random(5), 3000, 300);
+        for (int threshold : new int[] {1, 8}) {
+            Set<Long> expected = bruteForce(hashes, threshold);
+            for (int chunks : new int[] {3, 4, 5}) {
+                for (int slices : new int[] {2, 7, 100}) {
+                    assertEquals("threshold " + threshold + ", chunks " + chunks + ", slices " + slices,
+                            expected, joined(new HammingIndex(hashes, threshold, chunks), slices));
+                }
+            }
+        }
+    }
+
+    public void testUniformRandomHashes() {
+        long[] hashes = new long[2000];
+        Random r = new Random(7);
+        for (int i = 0; i < hashes.length; i++) hashes[i] = r.nextLong();
+        // cu hash-uri uniforme aproape nicio pereche nu e sub prag; indexul nu trebuie sa inventeze vreuna
+        HammingIndex index = new HammingIndex(hashes, 16);
+        assertEquals(bruteForce(hashes, 16), indexed(index));
+        assertEquals(bruteForce(hashes, 16), joined(index, 1));
+    }
+
+    // grupuri in jurul unor centre, cu 0..6 biti intorsi, ca sa existe perechi la toate distantele mici
+    static long[] clustered(Random r, int n, int centers) {
+        long[] c = new long[centers];
+        for (int i = 0; i < centers; i++) c[i] = r.nextLong();
+        long[] out = new long[n];
+        for (int i = 0; i < n; i++) {
+            long h = c[r.nextInt(centers)];
+            int flips = r.nextInt(7);
+            for (int f = 0; f < flips; f++) h ^= 1L << r.nextInt(64);
+            out[i] = h;
+        }
+        return out;
+    }
+
+    private static Set<Long> bruteForce(long[] hashes, int threshold) {
+        Set<Long> pairs = new HashSet<>();
+        for (int i = 0; i < hashes.length; i++) {
+            for (int j = i + 1; j < hashes.length; j++) {
+                if (Long.bitCount(hashes[i] ^ hashes[j]) <= threshold) pairs.add(pair(i, j));
+            }
+        }
+        return pairs;
+    }
+
+    private static Set<Long> indexed(HammingIndex index) {
+        Set<Long> pairs = new HashSet<>();
+        int[] seen = new int[index.size()];
+        for (int i = 0; i < index.size(); i++) {
+            int q = i;
+            index.forEachNeighborAbove(q, seen, j -> assertTrue("duplicate pair", pairs.add(pair(q, j))));
+        }
+        return pairs;
+    }
+
+    private static Set<Long> joined(HammingIndex index, int slices) {
+        Set<Long> pairs = new HashSet<>();
+        for (int c = 0; c < index.chunks(); c++) {
+            int values = index.values(c);
+            for (int s = 0; s < slices; s++) {
+                int from = (int) ((long) values * s / slices);
+                int to = (int) ((long) values * (s + 1) / slices);
+                index.forEachPair(c, from, to, (i, j) -> {
+                    assertTrue("unordered pair", i < j);
+                    assertTrue("duplicate pair", pairs.add(pair(i, j)));
+                });
+            }
+        }
+        return pairs;
+    }
+
+    private static long pair(int i, int j) {
+        return (long) i << 32 | j;
+    }
+}
@@ -0,0 +1,49 @@
+package Mirela;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// calea SIMD din HammingScan fata de bucla scalara, pe 20k hash-uri si capete de interval care nu cad pe
+// latimea benzii; surefire porneste testele cu --add-modules jdk.incubator.vector si -Dlogos.simd=true
+public class HammingScanTest extends TestCase {
+
+    public void testVectorPathIsActive() {
+        if (Boolean.getBoolean("logos.simd")) assertTrue(HammingScan.vectorized());
+    }
+
+    public void testSameMatchesAsScalar() {
+        Random rnd = new Random(25);
+        long[] hashes = HammingIndexTest.clustered(rnd, 20_000, 800);
+        int[] expected = new int[hashes.length];
+        int[] actual = new int[hashes.length];
+        for (int threshold : new int[] {0, 1, 3, 8, 12, 32, 64}) {
+            for (int trial = 0; trial < 50; trial++) {
+                long q = trial % 2 == 0 ? hashes[rnd.nextInt(hashes.length)] : rnd.nextLong();
+                int from = rnd.nextInt(17);
+                int to = hashes.length - rnd.nextInt(17);
+                int n = HammingScan.scalar(q, hashes, from, to, threshold, expected);
+                int m = HammingScan.matches(q, hashes, from, to, threshold, actual);
+                assertEquals("threshold " + threshold, n, m);
+                assertTrue("threshold " + threshold,
+                        Arrays.equals(Arrays.copyOf(expected, n), Arrays.copyOf(actual, m)));
+            }
+        }
+    }
+
+    public void testShortRanges() {
+        // intervale mai scurte decat o banda: merge doar coada scalara din VectorHammingScan
+        long[] hashes = HammingIndexTest.clustered(new Random(7), 64, 4);
+        int[] expected = new int[hashes.length];
+        int[] actual = new int[hashes.length];
+        for (int from = 0; from < 12; from++) {
+            for (int to = from; to < from + 12; to++) {
+                int n = HammingScan.scalar(hashes[0], hashes, from, to, 8, expected);
+                int m = HammingScan.matches(hashes[0], hashes, from, to, 8, actual);
+                assertEquals(n, m);
+                assertTrue(Arrays.equals(Arrays.copyOf(expected, n), Arrays.copyOf(actual, m)));
+            }
+        }
+    }
+}
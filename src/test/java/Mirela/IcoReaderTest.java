@@ -0,0 +1,166 @@
+package Mirela;
+
+import junit.framework.TestCase;
+import org.apache.commons.imaging.ImageReadException;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+// fisiere ICO construite in memorie (intrari PNG si DIB): alegerea intrarii, directoare taiate sau care mint,
+// offset-uri in afara fisierului si caderea pe decodarea intregului fisier
+public class IcoReaderTest extends TestCase {
+
+    private static final int RED = 0xFFFF0000;
+    private static final int GREEN = 0xFF00FF00;
+    private static final int BLUE = 0xFF0000FF;
+
+    public void testLargestEntryWins() throws Exception {
+        byte[] ico = ico(png(16, RED), png(48, GREEN), png(32, BLUE));
+        BufferedImage img = IcoReader.read(ico);
+        assertEquals(48, img.getWidth());
+        assertEquals(GREEN, img.getRGB(24, 24));
+    }
+
+    public void testPngDimensionsBeatDirectory() throws Exception {
+        // directorul nu poate spune mai mult de 256; intrarea PNG de 300 px e mai mare decat cea BMP de 256
+        byte[] ico = ico(dib(255, 24, RED), png(300, BLUE));
+        assertEquals(300, IcoReader.read(ico).getWidth());
+    }
+
+    public void testEqualSizeMoreBitsWins() throws Exception {
+        byte[] ico = ico(dib(16, 24, RED), dib(16, 32, BLUE), dib(8, 32, GREEN));
+        BufferedImage img = IcoReader.read(ico);
+        assertEquals(16, img.getWidth());
+        assertEquals(BLUE, img.getRGB(8, 8));
+    }
+
+    public void testEntryOutsideFileIsSkipped() throws Exception {
+        byte[] ico = ico(png(64, RED), png(16, BLUE));
+        // intrarea de 64 px arata dupa capatul fisierului
+        putLe32(ico, 6 + 12, ico.length + 100);
+        BufferedImage img = IcoReader.read(ico);
+        assertEquals(16, img.getWidth());
+        assertEquals(BLUE, img.getRGB(8, 8));
+    }
+
+    public void testBrokenEntryFallsBackToNext() throws Exception {
+        byte[] ico = ico(png(64, RED), png(16, BLUE));
+        // stricam datele PNG de dupa semnatura: decodarea intrarii mari esueaza, se incearca urmatoarea
+        int offset = le32(ico, 6 + 12);
+        for (int i = offset + 8; i < offset + 40; i++) ico[i] = (byte) 0xA5;
+        assertEquals(16, IcoReader.read(ico).getWidth());
+    }
+
+    public void testDirectoryClaimsMoreEntries() throws Exception {
+        // directorul anunta mai multe intrari decat are: restul sunt citite din datele imaginilor si respinse
+        byte[] ico = ico(png(16, RED), png(32, BLUE));
+        ico[4] = 40;
+        BufferedImage img = IcoReader.read(ico);
+        assertEquals(32, img.getWidth());
+        assertEquals(BLUE, img.getRGB(16, 16));
+    }
+
+    public void testTruncatedDirectoryFailsCleanly() throws Exception {
+        byte[] full = ico(png(32, RED));
+        for (int len : new int[] {4, 6, 6 + 8, 6 + 16, 6 + 16 + 20}) {
+            byte[] cut = Arrays.copyOf(full, len);
+            // nicio intrare citibila: decide decodarea intregului fisier, care esueaza cu o exceptie de decodare
+            assertDecodeFails("length " + len, cut);
+        }
+    }
+
+    public void testWholeFileFallback() throws Exception {
+        byte[] ico = ico(png(32, RED));
+        // singura intrare are datele stricate; dupa ea vine decodarea intregului fisier prin commons-imaging
+        int offset = le32(ico, 6 + 12);
+        for (int i = offset + 8; i < ico.length; i++) ico[i] = (byte) 0xA5;
+        long before = Metrics.counter("logos_ico_entries_total", "kind", "file").sum();
+        assertDecodeFails("broken entry", ico);
+        assertEquals(before + 1, Metrics.counter("logos_ico_entries_total", "kind", "file").sum());
+    }
+
+    private static void assertDecodeFails(String message, byte[] ico) {
+        try {
+            BufferedImage img = IcoReader.read(ico);
+            fail(message + ": decoded " + img);
+        } catch (IOException | ImageReadException expected) {
+            // ok: aceleasi exceptii ca la celelalte formate, tratate de ImageDecoder ca payload nedecodabil
+        }
+    }
+
+    private static byte[] png(int side, int argb) throws IOException {
+        BufferedImage img = new BufferedImage(side, side, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++) img.setRGB(x, y, argb);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(img, "png", out);
+        return out.toByteArray();
+    }
+
+    // DIB de icoana: BITMAPINFOHEADER cu inaltimea dubla, pixeli de jos in sus, apoi masca AND (toata opaca)
+    private static byte[] dib(int side, int bits, int argb) {
+        int rowBytes = (side * bits / 8 + 3) & ~3;
+        int maskRow = ((side + 31) / 32) * 4;
+        byte[] b = new byte[40 + rowBytes * side + maskRow * side];
+        putLe32(b, 0, 40);
+        putLe32(b, 4, side);
+        putLe32(b, 8, side * 2);
+        b[12] = 1;
+        b[14] = (byte) bits;
+        putLe32(b, 20, rowBytes * side + maskRow * side);
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++) {
+                int i = 40 + y * rowBytes + x * bits / 8;
+                b[i] = (byte) argb;
+                b[i + 1] = (byte) (argb >>> 8);
+                b[i + 2] = (byte) (argb >>> 16);
+                if (bits == 32) b[i + 3] = (byte) (argb >>> 24);
+            }
+        }
+        return b;
+    }
+
+    private static byte[] ico(byte[]... entries) {
+        int size = 6 + 16 * entries.length;
+        for (byte[] e : entries) size += e.length;
+        byte[] b = new byte[size];
+        b[2] = 1;
+        b[4] = (byte) entries.length;
+        int offset = 6 + 16 * entries.length;
+        for (int k = 0; k < entries.length; k++) {
+            byte[] e = entries[k];
+            boolean png = e[0] == (byte) 0x89;
+            int w = png ? be32(e, 16) : le32(e, 4);
+            int dir = 6 + 16 * k;
+            // 256 si peste se scriu 0
+            b[dir] = (byte) (w >= 256 ? 0 : w);
+            b[dir + 1] = (byte) (w >= 256 ? 0 : w);
+            b[dir + 4] = 1;
+            b[dir + 6] = (byte) (png ? 32 : e[14]);
+            putLe32(b, dir + 8, e.length);
+            putLe32(b, dir + 12, offset);
+            System.arraycopy(e, 0, b, offset, e.length);
+            offset += e.length;
+        }
+        return b;
+    }
+
+    private static int le32(byte[] b, int i) {
+        return (b[i] & 0xFF) | (b[i + 1] & 0xFF) << 8 | (b[i + 2] & 0xFF) << 16 | (b[i + 3] & 0xFF) << 24;
+    }
+
+    private static int be32(byte[] b, int i) {
+        return (b[i] & 0xFF) << 24 | (b[i + 1] & 0xFF) << 16 | (b[i + 2] & 0xFF) << 8 | (b[i + 3] & 0xFF);
+    }
+
+    private static void putLe32(byte[] b, int i, int v) {
+        b[i] = (byte) v;
+        b[i + 1] = (byte) (v >>> 8);
+        b[i + 2] = (byte) (v >>> 16);
+        b[i + 3] = (byte) (v >>> 24);
+    }
+}
@@ -0,0 +1,148 @@
+package Mirela;
+
+import junit.framework.TestCase;
+
+import java.nio.charset.StandardCharsets;
+
+// dimensiunile citite din antetele construite aici octet cu octet, plus anteturile taiate, care trebuie sa dea
+// null (decide decodarea completa), nu o exceptie sau o dimensiune inventata
+public class ImageProbeTest extends TestCase {
+
+    public void testPng() {
+        byte[] b = bytes(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0, 0, 13, 'I', 'H', 'D', 'R',
+                0, 0, 0x01, 0x2C, 0, 0, 0, 0x40);
+        assertSize(300, 64, ImageProbe.probe(b, b.length, ImageFormat.PNG));
+        assertNull(ImageProbe.probe(b, 23, ImageFormat.PNG));
+    }
+
+    public void testGif() {
+        byte[] b = bytes('G', 'I', 'F', '8', '9', 'a', 0x20, 0x01, 0x10, 0);
+        assertSize(288, 16, ImageProbe.probe(b, b.length, ImageFormat.GIF));
+        assertNull(ImageProbe.probe(b, 9, ImageFormat.GIF));
+    }
+
+    public void testJpegSkipsSegmentsBeforeSof() {
+        // SOI, APP0 de 16 octeti, octet de umplutura FF, apoi SOF2 (progresiv) cu inaltime 0x00C8 si latime 0x0190
+        byte[] b = bytes(0xFF, 0xD8,
+                0xFF, 0xE0, 0, 16, 'J', 'F', 'I', 'F', 0, 1, 1, 0, 0, 1, 0, 1, 0, 0,
+                0xFF, 0xFF, 0xC2, 0, 17, 8, 0, 0xC8, 0x01, 0x90, 3, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+        assertSize(400, 200, ImageProbe.probe(b, b.length, ImageFormat.JPEG));
+        // taiat inainte de SOF
+        assertNull(ImageProbe.probe(b, 22, ImageFormat.JPEG));
+    }
+
+    public void testJpegStopsAtScan() {
+        // SOS inaintea oricarui SOF: nu mai exista dimensiuni in antet
+        byte[] b = bytes(0xFF, 0xD8, 0xFF, 0xDA, 0, 8, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+        assertNull(ImageProbe.probe(b, b.length, ImageFormat.JPEG));
+    }
+
+    public void testWebp() {
+        // cadru cheie: tag de 3 octeti, start code 9D 01 2A, apoi latimea si inaltimea
+        byte[] lossy = riff("VP8 ", 0, 0, 0, 0x9D, 0x01, 0x2A, 0x80, 0xC2, 0x40, 0x00);
+        // 14 biti pe axa, bitii de scalare de sus sunt ignorati
+        assertSize(640, 64, ImageProbe.probe(lossy, lossy.length, ImageFormat.WEBP));
+
+        // VP8L: semnatura 0x2F, apoi (latime - 1) pe 14 biti si (inaltime - 1) pe 14 biti
+        int bits = 99 | 49 << 14;
+        byte[] lossless = riff("VP8L", 0x2F, bits, bits >>> 8, bits >>> 16, bits >>> 24, 0, 0, 0, 0, 0);
+        assertSize(100, 50, ImageProbe.probe(lossless, lossless.length, ImageFormat.WEBP));
+
+        // VP8X: flags + 3 rezervati, apoi (latime - 1) si (inaltime - 1) pe 24 de biti
+        byte[] extended = riff("VP8X", 0x10, 0, 0, 0, 0xFF, 0x0F, 0, 0x1F, 0, 0);
+        assertSize(4096, 32, ImageProbe.probe(extended, extended.length, ImageFormat.WEBP));
+
+        assertNull(ImageProbe.probe(lossy, 29, ImageFormat.WEBP));
+    }
+
+    public void testBmp() {
+        byte[] info = new byte[26];
+        info[0] = 'B';
+        info[1] = 'M';
+        le32(info, 14, 40);
+        le32(info, 18, 120);
+        // inaltime negativa: imagine top-down
+        le32(info, 22, -48);
+        assertSize(120, 48, ImageProbe.probe(info, info.length, ImageFormat.BMP));
+
+        // BITMAPCOREHEADER (OS/2): dimensiuni pe 16 biti
+        byte[] core = new byte[26];
+        le32(core, 14, 12);
+        core[18] = 64;
+        core[20] = 32;
+        assertSize(64, 32, ImageProbe.probe(core, core.length, ImageFormat.BMP));
+
+        assertNull(ImageProbe.probe(info, 25, ImageFormat.BMP));
+    }
+
+    public void testIcoPicksLargestEntry() {
+        // 16x16, 0x0 (adica 256x256), 48x48
+        byte[] b = ico(new int[][] {{16, 16}, {0, 0}, {48, 48}});
+        assertSize(256, 256, ImageProbe.probe(b, b.length, ImageFormat.ICO));
+    }
+
+    public void testIcoTruncatedDirectory() {
+        // directorul anunta trei intrari; la taiere conteaza doar cele ajunse in intregime in primii octeti
+        byte[] b = ico(new int[][] {{32, 32}, {64, 64}, {128, 128}});
+        assertSize(64, 64, ImageProbe.probe(b, 6 + 16 * 2, ImageFormat.ICO));
+        assertSize(32, 32, ImageProbe.probe(b, 6 + 16, ImageFormat.ICO));
+        assertNull(ImageProbe.probe(b, 6, ImageFormat.ICO));
+        assertNull(ImageProbe.probe(b, 3, ImageFormat.ICO));
+    }
+
+    public void testSvgOnlyRejectsEmptyDrawings() {
+        assertNull(probeSvg("<svg xmlns='http://www.w3.org/2000/svg' viewBox='0 0 1000 10'>"));
+        assertNull(probeSvg("<svg width='100' height='100'>"));
+        assertSize(0, 0, probeSvg("<?xml version='1.0'?><svg viewBox=\"0,0,0,24\">"));
+        assertSize(0, 0, probeSvg("<svg viewBox='0 0 2e1 0.0'>"));
+    }
+
+    public void testLenLargerThanArray() {
+        byte[] b = bytes('G', 'I', 'F', '8', '9', 'a', 0x20, 0x01, 0x10, 0);
+        assertSize(288, 16, ImageProbe.probe(b, ImageProbe.PROBE_BYTES, ImageFormat.GIF));
+    }
+
+    private static ImageProbe.Size probeSvg(String s) {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        return ImageProbe.probe(b, b.length, ImageFormat.SVG);
+    }
+
+    private static void assertSize(int w, int h, ImageProbe.Size size) {
+        assertNotNull(size);
+        assertEquals(w, size.width);
+        assertEquals(h, size.height);
+    }
+
+    private static byte[] ico(int[][] sizes) {
+        byte[] b = new byte[6 + 16 * sizes.length];
+        b[2] = 1;
+        b[4] = (byte) sizes.length;
+        for (int k = 0; k < sizes.length; k++) {
+            b[6 + 16 * k] = (byte) sizes[k][0];
+            b[6 + 16 * k + 1] = (byte) sizes[k][1];
+        }
+        return b;
+    }
+
+    private static byte[] riff(String chunk, int... payload) {
+        byte[] b = new byte[20 + payload.length];
+        System.arraycopy("RIFF".getBytes(StandardCharsets.ISO_8859_1), 0, b, 0, 4);
+        System.arraycopy("WEBP".getBytes(StandardCharsets.ISO_8859_1), 0, b, 8, 4);
+        System.arraycopy(chunk.getBytes(StandardCharsets.ISO_8859_1), 0, b, 12, 4);
+        for (int i = 0; i < payload.length; i++) b[20 + i] = (byte) payload[i];
+        return b;
+    }
+
+    private static byte[] bytes(int... v) {
+        byte[] b = new byte[v.length];
+        for (int i = 0; i < v.length; i++) b[i] = (byte) v[i];
+        return b;
+    }
+
+    private static void le32(byte[] b, int i, int v) {
+        b[i] = (byte) v;
+        b[i + 1] = (byte) (v >>> 8);
+        b[i + 2] = (byte) (v >>> 16);
+        b[i + 3] = (byte) (v >>> 24);
+    }
+}
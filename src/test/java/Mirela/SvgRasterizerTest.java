@@ -0,0 +1,47 @@
+package Mirela;
+
+import junit.framework.TestCase;
+
+import java.awt.image.BufferedImage;
+import java.nio.charset.StandardCharsets;
+
+// randarea unui SVG nu trebuie sa depinda de ce a mai randat acelasi fir inainte; render ruleaza pe firul
+// testului, deci toate documentele de aici trec prin acelasi parser
+public class SvgRasterizerTest extends TestCase {
+
+    private static final byte[] CIRCLE = svg("<svg xmlns='http://www.w3.org/2000/svg' viewBox='0 0 100 100'>"
+            + "<circle cx='50' cy='50' r='40' fill='black'/></svg>");
+    private static final byte[] BAND = svg("<svg xmlns='http://www.w3.org/2000/svg' width='150' height='9'>"
+            + "<rect width='150' height='9' fill='red'/><rect width='20' height='9' fill='blue'/></svg>");
+    private static final byte[] TALL = svg("<svg xmlns='http://www.w3.org/2000/svg' viewBox='0 0 10 80'>"
+            + "<rect x='2' width='6' height='80' fill='green'/></svg>");
+
+    public void testSameHashRegardlessOfPreviousRender() throws Exception {
+        BufferedImage first = SvgRasterizer.render(CIRCLE, SvgRasterizer.HASH_SIDE);
+        SvgRasterizer.render(BAND, SvgRasterizer.HASH_SIDE);
+        BufferedImage afterBand = SvgRasterizer.render(CIRCLE, SvgRasterizer.HASH_SIDE);
+        SvgRasterizer.render(TALL, SvgRasterizer.HASH_SIDE);
+        BufferedImage afterTall = SvgRasterizer.render(CIRCLE, SvgRasterizer.HASH_SIDE);
+
+        assertEquals(ImageHasher.dHash(first), ImageHasher.dHash(afterBand));
+        assertEquals(ImageHasher.dHash(first), ImageHasher.dHash(afterTall));
+        assertEquals(first.getWidth(), afterBand.getWidth());
+        assertEquals(first.getHeight(), afterBand.getHeight());
+    }
+
+    public void testAspectRatioFollowsDocument() throws Exception {
+        BufferedImage circle = SvgRasterizer.render(CIRCLE, SvgRasterizer.HASH_SIDE);
+        assertEquals(SvgRasterizer.HASH_SIDE, circle.getWidth());
+        assertEquals(SvgRasterizer.HASH_SIDE, circle.getHeight());
+
+        BufferedImage tall = SvgRasterizer.render(TALL, SvgRasterizer.HASH_SIDE);
+        // 1:8 -> latura mica ramane 9 (coloanele dHash), deci latura mare creste la 72
+        assertEquals(9, tall.getWidth());
+        assertEquals(72, tall.getHeight());
+        assertEquals(512, SvgRasterizer.nominalSize(circle).height);
+    }
+
+    private static byte[] svg(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}